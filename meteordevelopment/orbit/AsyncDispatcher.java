@@ -0,0 +1,175 @@
+package meteordevelopment.orbit;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import meteordevelopment.orbit.listeners.IListener;
+
+class AsyncDispatcher {
+   private int threads = 2;
+   private int queueCapacity = 1024;
+   private volatile AsyncDispatcher.Lane[] lanes;
+   private volatile BiConsumer<IListener, Throwable> exceptionHandler;
+
+   public synchronized void configure(int threads, int queueCapacity) {
+      if (this.lanes != null) {
+         throw new IllegalStateException("Async threads have already been started.");
+      } else {
+         this.threads = threads;
+         this.queueCapacity = queueCapacity;
+      }
+   }
+
+   /**
+    * Sets the handler for exceptions thrown by async listeners. When null they are passed to the uncaught exception
+    * handler of the thread that called the listener.
+    */
+   public void setExceptionHandler(BiConsumer<IListener, Throwable> exceptionHandler) {
+      this.exceptionHandler = exceptionHandler;
+   }
+
+   /**
+    * Queues the event for every listener on the listener's lane, blocking while the lane's queue is full. Lane threads
+    * never block: an async listener posting to its own lane queues the event past the capacity, so it is called after
+    * the events queued before it and never while it is still running. When another lane is full the listener is called
+    * directly on the posting lane instead of waiting, which could deadlock two full lanes posting to each other. An
+    * interrupt while waiting for queue space does not drop any listener, it is restored afterwards.
+    */
+   public void dispatch(IListener[] listeners, Object event) {
+      AsyncDispatcher.Lane[] lanes = this.getLanes();
+      AsyncDispatcher.Lane current = null;
+      for (AsyncDispatcher.Lane lane : lanes) {
+         if (Thread.currentThread() == lane.thread) {
+            current = lane;
+         }
+      }
+
+      boolean interrupted = false;
+      for (IListener listener : listeners) {
+         AsyncDispatcher.Lane lane = lanes[Math.floorMod(System.identityHashCode(listener), lanes.length)];
+         AsyncDispatcher.Task task = new AsyncDispatcher.Task(listener, event);
+         if (lane == current) {
+            lane.add(task);
+         } else if (current != null) {
+            if (!lane.offer(task)) {
+               this.call(listener, event);
+            }
+         } else {
+            while(true) {
+               try {
+                  lane.put(task);
+                  break;
+               } catch (InterruptedException e) {
+                  interrupted = true;
+               }
+            }
+         }
+      }
+
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+
+   }
+
+   private AsyncDispatcher.Lane[] getLanes() {
+      AsyncDispatcher.Lane[] lanes = this.lanes;
+      if (lanes == null) {
+         synchronized(this) {
+            lanes = this.lanes;
+            if (lanes == null) {
+               lanes = new AsyncDispatcher.Lane[this.threads];
+
+               for(int i = 0; i < lanes.length; ++i) {
+                  lanes[i] = new AsyncDispatcher.Lane(i, this.queueCapacity);
+               }
+
+               this.lanes = lanes;
+            }
+         }
+      }
+
+      return lanes;
+   }
+
+   private void call(IListener listener, Object event) {
+      try {
+         listener.call(event);
+      } catch (Throwable e) {
+         BiConsumer<IListener, Throwable> handler = this.exceptionHandler;
+         if (handler != null) {
+            handler.accept(listener, e);
+         } else {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+         }
+      }
+
+   }
+
+   /**
+    * Single thread calling the tasks of its queue in order. The capacity only limits tasks queued by other threads, the
+    * lane's own thread can always add tasks.
+    */
+   private class Lane implements Runnable {
+      private final BlockingQueue<AsyncDispatcher.Task> queue = new LinkedBlockingQueue<>();
+      private final Semaphore space;
+      private final Thread thread;
+
+      public Lane(int index, int queueCapacity) {
+         this.space = new Semaphore(queueCapacity);
+         this.thread = new Thread(this, "Orbit Async " + index);
+         this.thread.setDaemon(true);
+         this.thread.start();
+      }
+
+      public void put(AsyncDispatcher.Task task) throws InterruptedException {
+         this.space.acquire();
+         task.counted = true;
+         this.queue.add(task);
+      }
+
+      public boolean offer(AsyncDispatcher.Task task) {
+         if (!this.space.tryAcquire()) {
+            return false;
+         } else {
+            task.counted = true;
+            this.queue.add(task);
+            return true;
+         }
+      }
+
+      public void add(AsyncDispatcher.Task task) {
+         this.queue.add(task);
+      }
+
+      public void run() {
+         while(true) {
+            AsyncDispatcher.Task task;
+            try {
+               task = this.queue.take();
+            } catch (InterruptedException e) {
+               return;
+            }
+
+            if (task.counted) {
+               this.space.release();
+            }
+
+            AsyncDispatcher.this.call(task.listener, task.event);
+         }
+      }
+   }
+
+   private static class Task {
+      public final IListener listener;
+      public final Object event;
+      public boolean counted;
+
+      public Task(IListener listener, Object event) {
+         this.listener = listener;
+         this.event = event;
+      }
+   }
+}
@@ -0,0 +1,17 @@
+package meteordevelopment.orbit;
+
+import meteordevelopment.orbit.listeners.IListener;
+
+public interface BatchEditor {
+   void subscribe(Object var1);
+
+   void subscribe(Class<?> var1);
+
+   void subscribe(IListener var1);
+
+   void unsubscribe(Object var1);
+
+   void unsubscribe(Class<?> var1);
+
+   void unsubscribe(IListener var1);
+}
@@ -0,0 +1,7 @@
+package meteordevelopment.orbit;
+
+public class EventBand {
+   public static final int PRE = 0;
+   public static final int NORMAL = 1;
+   public static final int MONITOR = 2;
+}
@@ -2,178 +2,928 @@ package meteordevelopment.orbit;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import meteordevelopment.orbit.listeners.ArrayInvoker;
+import meteordevelopment.orbit.listeners.IInvoker;
 import meteordevelopment.orbit.listeners.IListener;
+import meteordevelopment.orbit.listeners.IListenerRegistry;
+import meteordevelopment.orbit.listeners.InstrumentedListener;
+import meteordevelopment.orbit.listeners.InvokerGenerator;
+import meteordevelopment.orbit.listeners.KeyedInvoker;
 import meteordevelopment.orbit.listeners.LambdaListener;
+import meteordevelopment.orbit.listeners.ListenerStats;
 
 public class EventBus implements IEventBus {
-   private final Map<Object, List<IListener>> listenerCache = new ConcurrentHashMap();
-   private final Map<Class<?>, List<IListener>> staticListenerCache = new ConcurrentHashMap();
-   private final Map<Class<?>, List<IListener>> listenerMap = new ConcurrentHashMap();
-   private final List<EventBus.LambdaFactoryInfo> lambdaFactoryInfos = new ArrayList();
+   private static final IListener[] NO_LISTENERS = new IListener[0];
+   private static final IInvoker NO_INVOKER = new ArrayInvoker(NO_LISTENERS);
+   private static final int MAX_GENERATED_KEYS = 16;
+   private static final Comparator<IListener> PRIORITY_ORDER = (a, b) -> {
+      int i = Integer.compare(a.getBand(), b.getBand());
+      if (i == 0) {
+         i = Integer.compare(b.getPriority(), a.getPriority());
+      }
+
+      return i != 0 ? i : Boolean.compare(b.cancels(), a.cancels());
+   };
+   private final ListenerCache listenerCache = new ListenerCache();
+   private static final ClassValue<IListenerRegistry> LISTENER_REGISTRIES = new ClassValue<IListenerRegistry>() {
+      protected IListenerRegistry computeValue(Class<?> klass) {
+         return EventBus.loadListenerRegistry(klass);
+      }
+   };
+   private final Map<Class<?>, List<IListener>> staticListenerCache = new ConcurrentHashMap<>();
+   private final Map<Class<?>, IListener[]> listenerMap = new ConcurrentHashMap<>();
+   private final Map<Class<?>, IListener[]> asyncListenerMap = new ConcurrentHashMap<>();
+   private final AsyncDispatcher asyncDispatcher = new AsyncDispatcher();
+   private final Map<Class<?>, Object> coalescedEvents = new ConcurrentHashMap<>();
+   private final Set<Class<?>> coalescedAsync = ConcurrentHashMap.newKeySet();
+   private final Map<Class<?>, Integer> slotIds = new ConcurrentHashMap<>();
+   private volatile IListener[][] slots = new IListener[0][];
+   private final Map<Class<?>, IInvoker> invokerMap = new ConcurrentHashMap<>();
+   private final Map<Class<?>, Object> invokerLocks = new ConcurrentHashMap<>();
+   private volatile IInvoker[] invokerSlots = new IInvoker[0];
+   private final Map<Class<?>, IListener[]> dispatchMap = new ConcurrentHashMap<>();
+   private final Map<Class<?>, IListener[]> asyncDispatchMap = new ConcurrentHashMap<>();
+   private volatile int version;
+   private volatile boolean generateInvokers;
+   private volatile boolean hierarchyDispatch;
+   private volatile boolean instrumented;
+   private volatile boolean derivedDispatch;
+   private volatile HandlerIndex handlerIndex;
+   private volatile EventRecorder recorder;
+   private final Map<Class<?>, Function<Object, Object>> discriminators = new ConcurrentHashMap<>();
+   private volatile boolean keyedDispatch;
+   private final Map<IListener, InstrumentedListener> instrumentedListeners = new ConcurrentHashMap<>();
+   private ScheduledExecutorService statsDumpExecutor;
+   private final List<EventBus.LambdaFactoryInfo> lambdaFactoryInfos = new CopyOnWriteArrayList<>();
+   private final ClassValue<LambdaListener.Factory> lambdaFactories = new EventBus.LambdaFactoryCache();
 
    public void registerLambdaFactory(String packagePrefix, LambdaListener.Factory factory) {
-      synchronized(this.lambdaFactoryInfos) {
-         this.lambdaFactoryInfos.add(new EventBus.LambdaFactoryInfo(packagePrefix, factory));
+      this.lambdaFactoryInfos.add(new EventBus.LambdaFactoryInfo(packagePrefix, factory));
+   }
+
+   public int registerSlot(Class<?> eventKlass) {
+      Integer id = this.slotIds.get(eventKlass);
+      if (id != null) {
+         return id;
+      } else {
+         synchronized(this.listenerMap) {
+            id = this.slotIds.get(eventKlass);
+            if (id == null) {
+               IListener[] listeners = this.collectListeners(eventKlass);
+               IListener[][] newSlots = new IListener[this.slots.length + 1][];
+               System.arraycopy(this.slots, 0, newSlots, 0, this.slots.length);
+               newSlots[this.slots.length] = listeners;
+               IInvoker[] newInvokerSlots = new IInvoker[this.invokerSlots.length + 1];
+               System.arraycopy(this.invokerSlots, 0, newInvokerSlots, 0, this.invokerSlots.length);
+               newInvokerSlots[this.invokerSlots.length] = this.createInvoker(eventKlass, listeners);
+               id = this.slots.length;
+               this.slots = newSlots;
+               this.invokerSlots = newInvokerSlots;
+               this.slotIds.put(eventKlass, id);
+            }
+
+            return id;
+         }
+      }
+   }
+
+   public void setHandlerIndex(HandlerIndex handlerIndex) {
+      this.handlerIndex = handlerIndex;
+   }
+
+   public HandlerIndex getHandlerIndex() {
+      return this.handlerIndex;
+   }
+
+   /**
+    * Groups the listeners of an event type by {@link IListener#getKey()}. Posting an event then only calls the listeners
+    * whose key equals the discriminator's result for that event, plus the listeners without a key. With hierarchy
+    * dispatch the discriminator also applies to subclasses of the event type. Listeners with a key are never called for
+    * events that have no discriminator. Invokers are only generated for event types with at most
+    * {@value #MAX_GENERATED_KEYS} distinct keys, others use array invokers per key so high cardinality keys do not
+    * define a class each.
+    */
+   @SuppressWarnings("unchecked")
+   public <T> void registerDiscriminator(Class<T> eventKlass, Function<? super T, ?> discriminator) {
+      synchronized(this.listenerMap) {
+         this.discriminators.put(eventKlass, (Function<Object, Object>)discriminator);
+         this.keyedDispatch = true;
+         ++this.version;
+         this.invokerMap.clear();
+         this.refreshSlots(null);
+      }
+   }
+
+   public void setRecorder(EventRecorder recorder) {
+      this.recorder = recorder;
+   }
+
+   public EventRecorder getRecorder() {
+      return this.recorder;
+   }
+
+   public void setGenerateInvokers(boolean generateInvokers) {
+      synchronized(this.listenerMap) {
+         this.generateInvokers = generateInvokers;
+         ++this.version;
+         this.invokerMap.clear();
+         this.refreshSlots(null);
+      }
+   }
+
+   public void setHierarchyDispatch(boolean hierarchyDispatch) {
+      synchronized(this.listenerMap) {
+         this.hierarchyDispatch = hierarchyDispatch;
+         this.derivedDispatch = this.hierarchyDispatch || this.instrumented;
+         ++this.version;
+         this.dispatchMap.clear();
+         this.asyncDispatchMap.clear();
+         this.invokerMap.clear();
+         this.refreshSlots(null);
+      }
+   }
+
+   public void setInstrumented(boolean instrumented) {
+      synchronized(this.listenerMap) {
+         this.instrumented = instrumented;
+         this.derivedDispatch = this.hierarchyDispatch || this.instrumented;
+         if (!instrumented) {
+            this.instrumentedListeners.clear();
+         } else {
+            for (IListener[] listeners : this.listenerMap.values()) {
+               this.instrument(NO_LISTENERS, listeners);
+            }
+
+            for (IListener[] listeners : this.asyncListenerMap.values()) {
+               this.instrument(NO_LISTENERS, listeners);
+            }
+         }
+
+         ++this.version;
+         this.dispatchMap.clear();
+         this.asyncDispatchMap.clear();
+         this.invokerMap.clear();
+         this.refreshSlots(null);
+      }
+   }
+
+   public List<ListenerStats> getListenerStats() {
+      List<ListenerStats> stats = new ArrayList<>();
+      for (InstrumentedListener listener : this.instrumentedListeners.values()) {
+         stats.add(listener.getStats());
+      }
+
+      stats.sort((a, b) -> {
+         return Long.compare(b.totalNanos, a.totalNanos);
+      });
+      return stats;
+   }
+
+   public void resetListenerStats() {
+      for (InstrumentedListener listener : this.instrumentedListeners.values()) {
+         listener.reset();
+      }
+
+   }
+
+   public void dumpListenerStats(Consumer<String> output) {
+      for (ListenerStats stats : this.getListenerStats()) {
+         output.accept(stats.toString());
       }
+
+   }
+
+   public synchronized ScheduledFuture<?> scheduleListenerStatsDump(long period, TimeUnit unit, Consumer<String> output) {
+      if (this.statsDumpExecutor == null) {
+         this.statsDumpExecutor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "Orbit Stats");
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+
+      return this.statsDumpExecutor.scheduleAtFixedRate(() -> {
+         this.dumpListenerStats(output);
+      }, period, period, unit);
    }
 
    public boolean isListening(Class<?> eventKlass) {
-      List<IListener> listeners = (List)this.listenerMap.get(eventKlass);
-      return listeners != null && !listeners.isEmpty();
+      return this.getDispatchListeners(eventKlass) != null;
    }
 
    public <T> T post(T event) {
-      List<IListener> listeners = (List)this.listenerMap.get(event.getClass());
-      if (listeners != null) {
-         Iterator var3 = listeners.iterator();
+      if (event instanceof ICoalescible) {
+         this.coalescedEvents.put(event.getClass(), event);
+      } else {
+         this.dispatch(event);
+      }
+
+      return event;
+   }
 
-         while(var3.hasNext()) {
-            IListener listener = (IListener)var3.next();
-            listener.call(event);
+   private void dispatch(Object event) {
+      EventRecorder recorder = this.recorder;
+      if (recorder != null) {
+         this.dispatch(recorder, this.getDispatchListeners(event.getClass()), event, false);
+      } else if (this.generateInvokers || this.keyedDispatch) {
+         this.getInvoker(event.getClass()).call(event);
+      } else {
+         IListener[] listeners = this.getDispatchListeners(event.getClass());
+         if (listeners != null) {
+            for(int i = 0; i < listeners.length; ++i) {
+               listeners[i].call(event);
+            }
          }
+
+      }
+   }
+
+   public <T extends ICancellable> T post(T event) {
+      EventRecorder recorder = this.recorder;
+      if (recorder != null) {
+         this.dispatch(recorder, this.getDispatchListeners(event.getClass()), event, true);
+      } else {
+         this.getInvoker(event.getClass()).call(event);
       }
 
       return event;
    }
 
-   public <T extends ICancellable> T post(T event) {
-      List<IListener> listeners = (List)this.listenerMap.get(event.getClass());
-      if (listeners != null) {
-         event.setCancelled(false);
-         Iterator var3 = listeners.iterator();
+   public <T> T post(T event, int slot) {
+      if (event instanceof ICoalescible) {
+         this.coalescedEvents.put(event.getClass(), event);
+         return event;
+      }
+
+      EventRecorder recorder = this.recorder;
+      if (recorder != null) {
+         this.dispatch(recorder, this.slots[slot], event, false);
+         return event;
+      }
+
+      if (this.generateInvokers || this.keyedDispatch) {
+         this.invokerSlots[slot].call(event);
+         return event;
+      }
+
+      IListener[] listeners = this.slots[slot];
+
+      for(int i = 0; i < listeners.length; ++i) {
+         listeners[i].call(event);
+      }
+
+      return event;
+   }
+
+   public <T extends ICancellable> T post(T event, int slot) {
+      EventRecorder recorder = this.recorder;
+      if (recorder != null) {
+         this.dispatch(recorder, this.slots[slot], event, true);
+      } else {
+         this.invokerSlots[slot].call(event);
+      }
+
+      return event;
+   }
+
+   private void dispatch(EventRecorder recorder, IListener[] listeners, Object event, boolean cancellable) {
+      listeners = this.select(listeners, event);
+      if (listeners == null) {
+         listeners = NO_LISTENERS;
+      }
+
+      Object recorded = recorder.copy(event);
+      int called = 0;
+      int cancelledAt = -1;
+      long start = System.nanoTime();
+
+      try {
+         if (cancellable && listeners.length > 0) {
+            ICancellable cancellableEvent = (ICancellable)event;
+            cancellableEvent.setCancelled(false);
+            int cancelling = 0;
 
-         while(var3.hasNext()) {
-            IListener listener = (IListener)var3.next();
-            listener.call(event);
-            if (event.isCancelled()) {
-               break;
+            for(int i = 0; i < listeners.length; ++i) {
+               if (listeners[i].cancels()) {
+                  cancelling = i + 1;
+               }
+            }
+
+            while(called < cancelling) {
+               listeners[called++].call(event);
+               if (cancellableEvent.isCancelled()) {
+                  cancelledAt = called - 1;
+                  return;
+               }
+            }
+
+            int monitors = listeners.length;
+            while(monitors > 0 && listeners[monitors - 1].getBand() == EventBand.MONITOR) {
+               --monitors;
+            }
+
+            while(called < monitors) {
+               listeners[called++].call(event);
+            }
+
+            if (cancellableEvent.isCancelled()) {
+               return;
+            }
+         }
+
+         while(called < listeners.length) {
+            listeners[called++].call(event);
+         }
+      } finally {
+         recorder.record(start, System.nanoTime() - start, recorded, listeners, called, cancelledAt);
+      }
+
+   }
+
+   public void flush() {
+      for (Class<?> eventKlass : this.coalescedEvents.keySet()) {
+         Object event = this.coalescedEvents.remove(eventKlass);
+         boolean async = this.coalescedAsync.remove(eventKlass);
+         if (event != null) {
+            this.dispatch(event);
+            if (async) {
+               this.dispatchAsync(event);
             }
          }
       }
 
+   }
+
+   public <T> T postAsync(T event) {
+      if (event instanceof ICoalescible && !(event instanceof ICancellable)) {
+         this.coalescedAsync.add(event.getClass());
+         this.coalescedEvents.put(event.getClass(), event);
+         return event;
+      }
+
+      boolean cancelled = false;
+      if (event instanceof ICancellable) {
+         cancelled = this.post((ICancellable)event).isCancelled();
+      } else {
+         this.dispatch(event);
+      }
+
+      if (!cancelled) {
+         this.dispatchAsync(event);
+      }
+
       return event;
    }
 
-   public void subscribe(Object object) {
-      this.subscribe(this.getListeners(object.getClass(), object), false);
+   private void dispatchAsync(Object event) {
+      IListener[] listeners = this.select(this.getAsyncListeners(event.getClass()), event);
+      if (listeners != null && listeners.length > 0) {
+         this.asyncDispatcher.dispatch(listeners, event);
+      }
+
    }
 
-   public void subscribe(Class<?> klass) {
-      this.subscribe(this.getListeners(klass, (Object)null), true);
+   public void setAsyncThreads(int threads, int queueCapacity) {
+      this.asyncDispatcher.configure(threads, queueCapacity);
    }
 
-   public void subscribe(IListener listener) {
-      this.subscribe(listener, false);
+   /**
+    * Sets the handler for exceptions thrown by async listeners. By default they are passed to the uncaught exception
+    * handler of the worker thread, which keeps running.
+    */
+   public void setAsyncExceptionHandler(BiConsumer<IListener, Throwable> handler) {
+      this.asyncDispatcher.setExceptionHandler(handler);
    }
 
-   private void subscribe(List<IListener> listeners, boolean onlyStatic) {
-      Iterator var3 = listeners.iterator();
+   public void subscribe(Object object) {
+      EventBus.Batch batch = new EventBus.Batch();
+      batch.subscribe(object);
+      this.commit(batch);
+   }
 
-      while(var3.hasNext()) {
-         IListener listener = (IListener)var3.next();
-         this.subscribe(listener, onlyStatic);
-      }
+   public void subscribe(Class<?> klass) {
+      EventBus.Batch batch = new EventBus.Batch();
+      batch.subscribe(klass);
+      this.commit(batch);
+   }
 
+   public void subscribe(IListener listener) {
+      this.subscribe(listener, false);
    }
 
    private void subscribe(IListener listener, boolean onlyStatic) {
-      if (onlyStatic) {
-         if (listener.isStatic()) {
-            this.insert((List)this.listenerMap.computeIfAbsent(listener.getTarget(), (aClass) -> {
-               return new CopyOnWriteArrayList();
-            }), listener);
+      if (!onlyStatic || listener.isStatic()) {
+         synchronized(this.listenerMap) {
+            IListener[] listeners = this.getRegistered(listener.getTarget(), listener.isAsync());
+            this.setRegistered(listener.getTarget(), listener.isAsync(), this.insert(listeners, listener));
          }
-      } else {
-         this.insert((List)this.listenerMap.computeIfAbsent(listener.getTarget(), (aClass) -> {
-            return new CopyOnWriteArrayList();
-         }), listener);
       }
 
    }
 
-   private void insert(List<IListener> listeners, IListener listener) {
-      int i;
-      for(i = 0; i < listeners.size() && listener.getPriority() <= ((IListener)listeners.get(i)).getPriority(); ++i) {
+   private IListener[] insert(IListener[] listeners, IListener listener) {
+      int low = 0;
+      int high = listeners.length;
+
+      while(low < high) {
+         int mid = low + high >>> 1;
+         if (PRIORITY_ORDER.compare(listeners[mid], listener) <= 0) {
+            low = mid + 1;
+         } else {
+            high = mid;
+         }
       }
 
-      listeners.add(i, listener);
+      IListener[] newListeners = new IListener[listeners.length + 1];
+      System.arraycopy(listeners, 0, newListeners, 0, low);
+      newListeners[low] = listener;
+      System.arraycopy(listeners, low, newListeners, low + 1, listeners.length - low);
+      return newListeners;
    }
 
    public void unsubscribe(Object object) {
-      this.unsubscribe(this.getListeners(object.getClass(), object), false);
+      EventBus.Batch batch = new EventBus.Batch();
+      batch.unsubscribe(object);
+      this.commit(batch);
    }
 
    public void unsubscribe(Class<?> klass) {
-      this.unsubscribe(this.getListeners(klass, (Object)null), true);
+      EventBus.Batch batch = new EventBus.Batch();
+      batch.unsubscribe(klass);
+      this.commit(batch);
    }
 
    public void unsubscribe(IListener listener) {
       this.unsubscribe(listener, false);
    }
 
-   private void unsubscribe(List<IListener> listeners, boolean staticOnly) {
-      Iterator var3 = listeners.iterator();
-
-      while(var3.hasNext()) {
-         IListener listener = (IListener)var3.next();
-         this.unsubscribe(listener, staticOnly);
+   private void unsubscribe(IListener listener, boolean staticOnly) {
+      if (!staticOnly || listener.isStatic()) {
+         synchronized(this.listenerMap) {
+            IListener[] listeners = this.getRegistered(listener.getTarget(), listener.isAsync());
+            IListener[] newListeners = this.remove(listeners, listener);
+            if (newListeners != listeners) {
+               this.setRegistered(listener.getTarget(), listener.isAsync(), newListeners);
+            }
+         }
       }
 
    }
 
-   private void unsubscribe(IListener listener, boolean staticOnly) {
-      List<IListener> l = (List)this.listenerMap.get(listener.getTarget());
-      if (l != null) {
-         if (staticOnly) {
-            if (listener.isStatic()) {
-               l.remove(listener);
+   public void subscribeAll(Collection<?> objects) {
+      List<Object> subscribed = new ArrayList<>(objects);
+      List<List<IListener>> listeners = subscribed.parallelStream().map((object) -> {
+         List<IListener> objectListeners = this.getListeners(object.getClass(), object);
+         for (IListener listener : objectListeners) {
+            if (listener instanceof LambdaListener) {
+               ((LambdaListener)listener).materialize();
             }
+         }
+
+         return objectListeners;
+      }).collect(Collectors.toList());
+      EventBus.Batch batch = new EventBus.Batch();
+
+      for(int i = 0; i < subscribed.size(); ++i) {
+         batch.add(subscribed.get(i), listeners.get(i), false, true);
+      }
+
+      this.commit(batch);
+   }
+
+   public void batch(Consumer<BatchEditor> editor) {
+      EventBus.Batch batch = new EventBus.Batch();
+      editor.accept(batch);
+      this.commit(batch);
+   }
+
+   private void commit(EventBus.Batch batch) {
+      Map<Class<?>, List<EventBus.Change>> changesByTarget = new LinkedHashMap<>();
+      Map<Class<?>, List<EventBus.Change>> asyncChangesByTarget = new LinkedHashMap<>();
+      for (EventBus.Change change : batch.changes) {
+         (change.listener.isAsync() ? asyncChangesByTarget : changesByTarget).computeIfAbsent(change.listener.getTarget(), (aClass) -> {
+            return new ArrayList<>();
+         }).add(change);
+      }
+
+      synchronized(this.listenerMap) {
+         this.commit(changesByTarget, false);
+         this.commit(asyncChangesByTarget, true);
+         for (EventBus.Subscription subscription : batch.subscriptions) {
+            this.listenerCache.subscribed(subscription.object, subscription.listeners, subscription.delta);
+         }
+      }
+   }
+
+   private void commit(Map<Class<?>, List<EventBus.Change>> changesByTarget, boolean async) {
+      for (Entry<Class<?>, List<EventBus.Change>> entry : changesByTarget.entrySet()) {
+         IListener[] current = this.getRegistered(entry.getKey(), async);
+         IListener[] listeners = this.apply(current, entry.getValue());
+         if (listeners != current) {
+            this.setRegistered(entry.getKey(), async, listeners);
+         }
+      }
+
+   }
+
+   private IListener[] getRegistered(Class<?> eventKlass, boolean async) {
+      return (async ? this.asyncListenerMap : this.listenerMap).getOrDefault(eventKlass, NO_LISTENERS);
+   }
+
+   private void setRegistered(Class<?> eventKlass, boolean async, IListener[] listeners) {
+      IListener[] previous = this.getRegistered(eventKlass, async);
+      if (!this.keyedDispatch && hasKeys(listeners)) {
+         this.keyedDispatch = true;
+      }
+
+      if (this.instrumented) {
+         this.instrument(previous, listeners);
+      }
+
+      if (!async) {
+         this.setListeners(eventKlass, listeners);
+      } else {
+         if (listeners.length == 0) {
+            this.asyncListenerMap.remove(eventKlass);
          } else {
-            l.remove(listener);
+            this.asyncListenerMap.put(eventKlass, listeners);
          }
+
+         ++this.version;
+         this.invalidate(this.asyncDispatchMap, eventKlass);
+      }
+
+      if (!this.instrumentedListeners.isEmpty()) {
+         this.uninstrument(previous, listeners);
       }
 
    }
 
-   private List<IListener> getListeners(Class<?> klass, Object object) {
-      Function<Object, List<IListener>> func = (o) -> {
-         List<IListener> listeners = new CopyOnWriteArrayList();
-         this.getListeners(listeners, klass, object);
+   private IListener[] apply(IListener[] listeners, List<EventBus.Change> changes) {
+      List<IListener> added = new ArrayList<>();
+      Map<IListener, Integer> removed = new HashMap<>();
+      Map<IListener, Integer> remaining = null;
+      for (EventBus.Change change : changes) {
+         if (change.subscribe) {
+            added.add(change.listener);
+         } else {
+            if (remaining == null) {
+               remaining = new HashMap<>();
+
+               for (IListener listener : listeners) {
+                  remaining.merge(listener, 1, Integer::sum);
+               }
+            }
+
+            if (remaining.getOrDefault(change.listener, 0) > 0) {
+               remaining.merge(change.listener, -1, Integer::sum);
+               removed.merge(change.listener, 1, Integer::sum);
+            } else {
+               added.remove(change.listener);
+            }
+         }
+      }
+
+      if (added.isEmpty() && removed.isEmpty()) {
          return listeners;
-      };
-      if (object == null) {
-         return (List)this.staticListenerCache.computeIfAbsent(klass, func);
       } else {
-         Iterator var4 = this.listenerCache.keySet().iterator();
+         added.sort(PRIORITY_ORDER);
+         IListener[] newListeners = new IListener[listeners.length + added.size()];
+         int size = 0;
+         int j = 0;
+
+         for(int i = 0; i < listeners.length; ++i) {
+            IListener listener = listeners[i];
+            Integer count = removed.get(listener);
+            if (count != null && count > 0) {
+               removed.put(listener, count - 1);
+            } else {
+               while(j < added.size() && PRIORITY_ORDER.compare(added.get(j), listener) < 0) {
+                  newListeners[size++] = added.get(j++);
+               }
 
-         Object key;
-         do {
-            if (!var4.hasNext()) {
-               List<IListener> listeners = (List)func.apply(object);
-               this.listenerCache.put(object, listeners);
-               return listeners;
+               newListeners[size++] = listener;
             }
+         }
 
-            key = var4.next();
-         } while(key != object);
+         while(j < added.size()) {
+            newListeners[size++] = added.get(j++);
+         }
 
-         return (List)this.listenerCache.get(object);
+         return size == newListeners.length ? newListeners : Arrays.copyOf(newListeners, size);
       }
    }
 
-   private void getListeners(List<IListener> listeners, Class<?> klass, Object object) {
-      Method[] var4 = klass.getDeclaredMethods();
-      int var5 = var4.length;
+   private void setListeners(Class<?> eventKlass, IListener[] listeners) {
+      if (listeners.length == 0) {
+         this.listenerMap.remove(eventKlass);
+      } else {
+         this.listenerMap.put(eventKlass, listeners);
+      }
 
-      for(int var6 = 0; var6 < var5; ++var6) {
-         Method method = var4[var6];
-         if (this.isValid(method)) {
+      ++this.version;
+      this.invalidate(this.dispatchMap, eventKlass);
+      this.invalidate(this.invokerMap, eventKlass);
+      this.refreshSlots(eventKlass);
+   }
+
+   /**
+    * Removes the cached entries of event types whose listeners include the ones of the changed type, with hierarchy
+    * dispatch these are all its subtypes.
+    */
+   private void invalidate(Map<Class<?>, ?> cache, Class<?> changedKlass) {
+      if (this.hierarchyDispatch) {
+         cache.keySet().removeIf(changedKlass::isAssignableFrom);
+      } else {
+         cache.remove(changedKlass);
+      }
+
+   }
+
+   private void refreshSlots(Class<?> changedKlass) {
+      IListener[][] newSlots = this.slots.clone();
+      IInvoker[] newInvokerSlots = this.invokerSlots.clone();
+      boolean changed = false;
+      for (Entry<Class<?>, Integer> entry : this.slotIds.entrySet()) {
+         Class<?> eventKlass = entry.getKey();
+         if (changedKlass == null || changedKlass == eventKlass || this.hierarchyDispatch && changedKlass.isAssignableFrom(eventKlass)) {
+            int id = entry.getValue();
+            newSlots[id] = this.collectListeners(eventKlass);
+            newInvokerSlots[id] = this.createInvoker(eventKlass, newSlots[id]);
+            changed = true;
+         }
+      }
+
+      if (changed) {
+         this.slots = newSlots;
+         this.invokerSlots = newInvokerSlots;
+      }
+
+   }
+
+   private IListener[] getDispatchListeners(Class<?> eventKlass) {
+      if (!this.derivedDispatch) {
+         return this.listenerMap.get(eventKlass);
+      } else {
+         IListener[] listeners = this.dispatchMap.get(eventKlass);
+         if (listeners == null) {
+            int version = this.version;
+            listeners = this.collectListeners(eventKlass);
+            this.cache(this.dispatchMap, eventKlass, listeners, version);
+         }
+
+         return listeners.length != 0 ? listeners : null;
+      }
+   }
+
+   /** Returns the async listeners of the event type, with hierarchy dispatch and instrumentation like sync ones. */
+   private IListener[] getAsyncListeners(Class<?> eventKlass) {
+      if (!this.derivedDispatch) {
+         return this.asyncListenerMap.get(eventKlass);
+      } else {
+         IListener[] listeners = this.asyncDispatchMap.get(eventKlass);
+         if (listeners == null) {
+            int version = this.version;
+            listeners = this.collectListeners(this.asyncListenerMap, eventKlass);
+            this.cache(this.asyncDispatchMap, eventKlass, listeners, version);
+         }
+
+         return listeners;
+      }
+   }
+
+   private IListener[] collectListeners(Class<?> eventKlass) {
+      return this.collectListeners(this.listenerMap, eventKlass);
+   }
+
+   private IListener[] collectListeners(Map<Class<?>, IListener[]> registered, Class<?> eventKlass) {
+      IListener[] listeners;
+      if (!this.hierarchyDispatch) {
+         listeners = registered.getOrDefault(eventKlass, NO_LISTENERS);
+      } else {
+         List<IListener> list = new ArrayList<>();
+         this.collectListeners(registered, list, new HashSet<>(), eventKlass);
+         list.sort(PRIORITY_ORDER);
+         listeners = list.toArray(NO_LISTENERS);
+      }
+
+      if (this.instrumented) {
+         IListener[] instrumentedListeners = new IListener[listeners.length];
+
+         for(int i = 0; i < listeners.length; ++i) {
+            instrumentedListeners[i] = this.instrument(listeners[i]);
+         }
+
+         listeners = instrumentedListeners;
+      }
+
+      return listeners;
+   }
+
+   /**
+    * Wrappers are created and dropped when listeners are (un)subscribed, so posting only looks them up. A listener that
+    * was unsubscribed meanwhile is returned unwrapped.
+    */
+   private IListener instrument(IListener listener) {
+      IListener instrumented = this.instrumentedListeners.get(listener);
+      return instrumented != null ? instrumented : listener;
+   }
+
+   /** Creates the wrappers of added listeners, before they are published. */
+   private void instrument(IListener[] previous, IListener[] listeners) {
+      Set<IListener> existing = new HashSet<>(Arrays.asList(previous));
+      for (IListener listener : listeners) {
+         if (!existing.contains(listener)) {
+            this.instrumentedListeners.computeIfAbsent(listener, InstrumentedListener::new);
+         }
+      }
+
+   }
+
+   /** Drops the wrappers of removed listeners, after they were unpublished. */
+   private void uninstrument(IListener[] previous, IListener[] listeners) {
+      Set<IListener> remaining = new HashSet<>(Arrays.asList(listeners));
+      for (IListener listener : previous) {
+         if (!remaining.contains(listener)) {
+            this.instrumentedListeners.remove(listener);
+         }
+      }
+
+   }
+
+   private void collectListeners(Map<Class<?>, IListener[]> registered, List<IListener> listeners, Set<Class<?>> visited, Class<?> klass) {
+      if (klass != null && visited.add(klass)) {
+         IListener[] l = registered.get(klass);
+         if (l != null) {
+            Collections.addAll(listeners, l);
+         }
+
+         this.collectListeners(registered, listeners, visited, klass.getSuperclass());
+         for (Class<?> i : klass.getInterfaces()) {
+            this.collectListeners(registered, listeners, visited, i);
+         }
+      }
+
+   }
+
+   /**
+    * Creating an invoker may define a hidden class, so threads that miss at the same time wait for the first one to
+    * create it instead of each defining their own.
+    */
+   private IInvoker getInvoker(Class<?> eventKlass) {
+      IInvoker invoker = this.invokerMap.get(eventKlass);
+      if (invoker == null) {
+         synchronized(this.invokerLocks.computeIfAbsent(eventKlass, (klass) -> {
+            return new Object();
+         })) {
+            invoker = this.invokerMap.get(eventKlass);
+            if (invoker == null) {
+               int version = this.version;
+               invoker = this.createInvoker(eventKlass, this.collectListeners(eventKlass));
+               this.cache(this.invokerMap, eventKlass, invoker, version);
+            }
+         }
+      }
+
+      return invoker;
+   }
+
+   private <V> void cache(Map<Class<?>, V> cache, Class<?> eventKlass, V value, int version) {
+      cache.put(eventKlass, value);
+      if (this.version != version) {
+         cache.remove(eventKlass, value);
+      }
+
+   }
+
+   private IInvoker createInvoker(Class<?> eventKlass, IListener[] listeners) {
+      if (!this.keyedDispatch || !hasKeys(listeners)) {
+         return this.createInvoker(listeners, this.generateInvokers);
+      } else {
+         Function<Object, Object> discriminator = this.getDiscriminator(eventKlass);
+         IInvoker unkeyed = this.createInvoker(this.withKey(listeners, null), this.generateInvokers);
+         if (discriminator == null) {
+            return unkeyed;
+         } else {
+            Set<Object> keys = new LinkedHashSet<>();
+            for (IListener listener : listeners) {
+               if (listener.getKey() != null) {
+                  keys.add(listener.getKey());
+               }
+            }
+
+            boolean generate = this.generateInvokers && keys.size() <= MAX_GENERATED_KEYS;
+            Map<Object, IInvoker> invokers = new HashMap<>();
+            for (Object key : keys) {
+               invokers.put(key, this.createInvoker(this.withKey(listeners, key), generate));
+            }
+
+            return new KeyedInvoker(discriminator, invokers, unkeyed);
+         }
+      }
+   }
+
+   private IInvoker createInvoker(IListener[] listeners, boolean generate) {
+      if (listeners.length == 0) {
+         return NO_INVOKER;
+      } else {
+         return generate ? InvokerGenerator.create(listeners) : new ArrayInvoker(listeners);
+      }
+   }
+
+   private static boolean hasKeys(IListener[] listeners) {
+      for (IListener listener : listeners) {
+         if (listener.getKey() != null) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private Function<Object, Object> getDiscriminator(Class<?> eventKlass) {
+      Function<Object, Object> discriminator = this.discriminators.get(eventKlass);
+      if (this.hierarchyDispatch) {
+         for(Class<?> klass = eventKlass.getSuperclass(); discriminator == null && klass != null; klass = klass.getSuperclass()) {
+            discriminator = this.discriminators.get(klass);
+         }
+      }
+
+      return discriminator;
+   }
+
+   private IListener[] select(IListener[] listeners, Object event) {
+      if (listeners != null && this.keyedDispatch && hasKeys(listeners)) {
+         Function<Object, Object> discriminator = this.getDiscriminator(event.getClass());
+         return this.withKey(listeners, discriminator != null ? discriminator.apply(event) : null);
+      } else {
+         return listeners;
+      }
+   }
+
+   private IListener[] withKey(IListener[] listeners, Object key) {
+      List<IListener> selected = new ArrayList<>(listeners.length);
+      for (IListener listener : listeners) {
+         if (listener.getKey() == null || listener.getKey().equals(key)) {
+            selected.add(listener);
+         }
+      }
+
+      return selected.toArray(NO_LISTENERS);
+   }
+
+   private IListener[] remove(IListener[] listeners, IListener listener) {
+      for(int i = 0; i < listeners.length; ++i) {
+         if (listeners[i].equals(listener)) {
+            IListener[] newListeners = new IListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, newListeners, 0, i);
+            System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+            return newListeners;
+         }
+      }
+
+      return listeners;
+   }
+
+   private List<IListener> getListeners(Class<?> klass, Object object) {
+      Function<Object, List<IListener>> func = (o) -> {
+         List<IListener> listeners = new CopyOnWriteArrayList<>();
+         this.getListeners(listeners, klass, object);
+         return listeners;
+      };
+      return object == null ? this.staticListenerCache.computeIfAbsent(klass, func) : this.listenerCache.get(object, func);
+   }
+
+   private void getListeners(List<IListener> listeners, Class<?> klass, Object object) {
+      IListenerRegistry registry = LISTENER_REGISTRIES.get(klass);
+      if (registry != null) {
+         registry.getListeners(object, listeners);
+      } else {
+         HandlerIndex index = this.handlerIndex;
+         Method[] handlers = index != null ? index.getHandlers(klass, this::findHandlers) : this.findHandlers(klass);
+         for (Method method : handlers) {
             listeners.add(new LambdaListener(this.getLambdaFactory(klass), klass, object, method));
          }
       }
@@ -184,6 +934,34 @@ public class EventBus implements IEventBus {
 
    }
 
+   private Method[] findHandlers(Class<?> klass) {
+      List<Method> handlers = new ArrayList<>();
+      for (Method method : klass.getDeclaredMethods()) {
+         if (this.isValid(method)) {
+            handlers.add(method);
+         }
+      }
+
+      return handlers.toArray(new Method[0]);
+   }
+
+   /**
+    * Returns the generated registry of the class, or null if it has none or it cannot be loaded, in which case its
+    * listeners are found through reflection.
+    */
+   private static IListenerRegistry loadListenerRegistry(Class<?> klass) {
+      if (klass.getClassLoader() == null) {
+         return null;
+      } else {
+         try {
+            Class<?> registry = Class.forName(klass.getName() + "$OrbitListeners", true, klass.getClassLoader());
+            return (IListenerRegistry)registry.getDeclaredConstructor().newInstance();
+         } catch (LinkageError | ClassCastException | ReflectiveOperationException e) {
+            return null;
+         }
+      }
+   }
+
    private boolean isValid(Method method) {
       if (!method.isAnnotationPresent(EventHandler.class)) {
          return false;
@@ -197,19 +975,86 @@ public class EventBus implements IEventBus {
    }
 
    private LambdaListener.Factory getLambdaFactory(Class<?> klass) {
-      synchronized(this.lambdaFactoryInfos) {
-         Iterator var3 = this.lambdaFactoryInfos.iterator();
+      return this.lambdaFactories.get(klass);
+   }
+
+   private LambdaListener.Factory findLambdaFactory(Class<?> klass) {
+      for (EventBus.LambdaFactoryInfo info : this.lambdaFactoryInfos) {
+         if (klass.getName().startsWith(info.packagePrefix)) {
+            return info.factory;
+         }
+      }
+
+      throw new NoLambdaFactoryException(klass);
+   }
+
+   private class Batch implements BatchEditor {
+      private final List<EventBus.Change> changes = new ArrayList<>();
+      private final List<EventBus.Subscription> subscriptions = new ArrayList<>();
+
+      public void subscribe(Object object) {
+         this.add(object, EventBus.this.getListeners(object.getClass(), object), false, true);
+      }
+
+      public void subscribe(Class<?> klass) {
+         this.add(null, EventBus.this.getListeners(klass, null), true, true);
+      }
 
-         EventBus.LambdaFactoryInfo info;
-         do {
-            if (!var3.hasNext()) {
-               throw new NoLambdaFactoryException(klass);
+      public void subscribe(IListener listener) {
+         this.changes.add(new EventBus.Change(listener, true));
+      }
+
+      public void unsubscribe(Object object) {
+         this.add(object, EventBus.this.getListeners(object.getClass(), object), false, false);
+      }
+
+      public void unsubscribe(Class<?> klass) {
+         this.add(null, EventBus.this.getListeners(klass, null), true, false);
+      }
+
+      public void unsubscribe(IListener listener) {
+         this.changes.add(new EventBus.Change(listener, false));
+      }
+
+      private void add(Object object, List<IListener> listeners, boolean onlyStatic, boolean subscribe) {
+         if (object != null) {
+            this.subscriptions.add(new EventBus.Subscription(object, listeners, subscribe ? 1 : -1));
+         }
+
+         for (IListener listener : listeners) {
+            if (!onlyStatic || listener.isStatic()) {
+               this.changes.add(new EventBus.Change(listener, subscribe));
             }
+         }
+
+      }
+   }
+
+   private class LambdaFactoryCache extends ClassValue<LambdaListener.Factory> {
+      protected LambdaListener.Factory computeValue(Class<?> klass) {
+         return EventBus.this.findLambdaFactory(klass);
+      }
+   }
+
+   private static class Change {
+      public final IListener listener;
+      public final boolean subscribe;
+
+      public Change(IListener listener, boolean subscribe) {
+         this.listener = listener;
+         this.subscribe = subscribe;
+      }
+   }
 
-            info = (EventBus.LambdaFactoryInfo)var3.next();
-         } while(!klass.getName().startsWith(info.packagePrefix));
+   private static class Subscription {
+      public final Object object;
+      public final List<IListener> listeners;
+      public final int delta;
 
-         return info.factory;
+      public Subscription(Object object, List<IListener> listeners, int delta) {
+         this.object = object;
+         this.listeners = listeners;
+         this.delta = delta;
       }
    }
 
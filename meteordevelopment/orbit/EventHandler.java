@@ -8,5 +8,37 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD})
 public @interface EventHandler {
+   /**
+    * Listeners with a higher priority are called first. Among listeners with the same priority the ones that can cancel
+    * the event are called first, the rest keep the order they were subscribed in.
+    */
    int priority() default 0;
+
+   /**
+    * Async listeners are only called for events posted with {@link IEventBus#postAsync(Object)}, on one of the bus's
+    * async worker threads and after all synchronous listeners have run. They receive events in the order they were
+    * posted, unless an async listener posts to a full queue of another worker, then it is called on the posting worker.
+    * They cannot cancel events.
+    */
+   boolean async() default false;
+
+   /**
+    * Set to false if this listener never cancels the event. Cancellable events skip the cancellation check after the
+    * last listener that can cancel, so a listener that cancels anyway is not guaranteed to stop the ones after it.
+    */
+   boolean cancels() default true;
+
+   /**
+    * Only call this listener for events whose discriminator returns this class, for example the class of the packet in
+    * a packet event. Void means the listener is called for every event. A listener with a key is never called for an
+    * event type without a discriminator, see {@link EventBus#registerDiscriminator(Class, java.util.function.Function)}.
+    */
+   Class<?> key() default Void.class;
+
+   /**
+    * Listeners in the {@link EventBand#PRE} band are called before all others and listeners in the
+    * {@link EventBand#MONITOR} band after all others, priority only orders listeners within a band. Monitor listeners
+    * observe the outcome of an event: they cannot cancel it and are skipped when it was cancelled.
+    */
+   int band() default EventBand.NORMAL;
 }
@@ -0,0 +1,173 @@
+package meteordevelopment.orbit;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Reusable event instances for a single event type, so posting on hot paths does not allocate. A pool is not thread
+ * safe and should only be used from the thread that posts its events. Nested posts of the same type are fine, each
+ * one gets its own instance.
+ * <p>
+ * Listeners must not keep a reference to a pooled event after they return. {@link #post(IEventBus, Object)} does not
+ * return an event to the pool when the bus may still use it after posting: {@link ICoalescible} events, which wait for
+ * {@link IEventBus#flush()}, and events posted while the bus records without a copier. Async listeners are never called
+ * for pooled events, as they are only called by {@link IEventBus#postAsync(Object)}, so events acquired with
+ * {@link #get()} must not be passed to it. In debug mode the pool stops reusing instances and {@link #checkRetained()}
+ * reports every released event that is still reachable after two garbage collections, together with the stack trace of
+ * the code that acquired it.
+ */
+public class EventPool<T> {
+   private final Supplier<T> factory;
+   private final Object[] events;
+   private int size;
+   private boolean debug;
+   private final Map<T, Throwable> acquired = new IdentityHashMap<>();
+   private final List<EventPool.Released> released = new ArrayList<>();
+   private WeakReference<Object> gcSentinel = new WeakReference<>(new Object());
+   private int gcCount;
+
+   public EventPool(Supplier<T> factory, int capacity) {
+      this.factory = factory;
+      this.events = new Object[capacity];
+   }
+
+   public EventPool(Supplier<T> factory) {
+      this(factory, 8);
+   }
+
+   public void setDebug(boolean debug) {
+      this.debug = debug;
+      this.acquired.clear();
+      this.released.clear();
+   }
+
+   @SuppressWarnings("unchecked")
+   public T get() {
+      T event;
+      if (this.debug) {
+         event = this.factory.get();
+         this.acquired.put(event, new Throwable("Acquired here"));
+      } else if (this.size > 0) {
+         event = (T)this.events[--this.size];
+         this.events[this.size] = null;
+      } else {
+         event = this.factory.get();
+      }
+
+      if (event instanceof ICancellable) {
+         ((ICancellable)event).setCancelled(false);
+      }
+
+      return event;
+   }
+
+   public void release(T event) {
+      if (this.debug) {
+         Throwable acquiredAt = this.acquired.remove(event);
+         this.released.add(new EventPool.Released(event, acquiredAt, this.gcCount));
+      } else if (this.size < this.events.length) {
+         this.events[this.size++] = event;
+      }
+
+   }
+
+   /**
+    * Posts an event taken with {@link #get()} and returns it to the pool unless the bus may still use it. Returns whether
+    * the event was cancelled.
+    */
+   public boolean post(IEventBus bus, T event) {
+      boolean retained = event instanceof ICoalescible || isRecording(bus);
+
+      boolean cancelled;
+      try {
+         if (event instanceof ICancellable) {
+            cancelled = bus.post((ICancellable)event).isCancelled();
+         } else {
+            bus.post(event);
+            cancelled = false;
+         }
+      } finally {
+         if (!retained && !isRecording(bus)) {
+            this.release(event);
+         } else if (this.debug) {
+            this.acquired.remove(event);
+         }
+
+      }
+
+      return cancelled;
+   }
+
+   /**
+    * Initializes an event with the argument and posts it, see {@link #post(IEventBus, Object)}. A non capturing lambda
+    * or method reference as initializer, for example {@code (event, packet) -> event.packet = packet}, does not allocate.
+    */
+   public <A> boolean post(IEventBus bus, BiConsumer<? super T, ? super A> init, A arg) {
+      T event = this.get();
+      try {
+         init.accept(event, arg);
+      } catch (RuntimeException | Error e) {
+         this.release(event);
+         throw e;
+      }
+
+      return this.post(bus, event);
+   }
+
+   public boolean post(IEventBus bus, Consumer<? super T> init) {
+      return this.post(bus, (event, consumer) -> {
+         consumer.accept(event);
+      }, init);
+   }
+
+   private static boolean isRecording(IEventBus bus) {
+      EventRecorder recorder = bus.getRecorder();
+      return recorder != null && !recorder.copies();
+   }
+
+   /**
+    * Returns an exception for every released event still reachable after two garbage collections, with the stack trace
+    * of the code that acquired it as cause. Each event is only reported once.
+    */
+   public List<IllegalStateException> checkRetained() {
+      if (this.gcSentinel.get() == null) {
+         ++this.gcCount;
+         this.gcSentinel = new WeakReference<>(new Object());
+      }
+
+      List<IllegalStateException> retained = new ArrayList<>();
+      Iterator<EventPool.Released> it = this.released.iterator();
+
+      while(it.hasNext()) {
+         EventPool.Released r = it.next();
+         Object event = r.event.get();
+         if (event == null) {
+            it.remove();
+         } else if (this.gcCount - r.gcCount >= 2) {
+            it.remove();
+            retained.add(new IllegalStateException("Event " + event.getClass().getName() + " was retained after dispatch.", r.acquiredAt));
+         }
+      }
+
+      return retained;
+   }
+
+   private static class Released {
+      public final WeakReference<Object> event;
+      public final Throwable acquiredAt;
+      public final int gcCount;
+
+      public Released(Object event, Throwable acquiredAt, int gcCount) {
+         this.event = new WeakReference<>(event);
+         this.acquiredAt = acquiredAt;
+         this.gcCount = gcCount;
+      }
+   }
+}
@@ -0,0 +1,23 @@
+package meteordevelopment.orbit;
+
+import meteordevelopment.orbit.listeners.IListener;
+
+public class EventRecord {
+   public final long timestamp;
+   public final long durationNanos;
+   public final Object event;
+   public final IListener[] listeners;
+   public final IListener cancelledBy;
+
+   public EventRecord(long timestamp, long durationNanos, Object event, IListener[] listeners, IListener cancelledBy) {
+      this.timestamp = timestamp;
+      this.durationNanos = durationNanos;
+      this.event = event;
+      this.listeners = listeners;
+      this.cancelledBy = cancelledBy;
+   }
+
+   public String toString() {
+      return String.format("%d %s: %d listeners, %.1f us%s", this.timestamp, this.event.getClass().getName(), this.listeners.length, (double)this.durationNanos / 1000.0D, this.cancelledBy != null ? ", cancelled by " + this.cancelledBy : "");
+   }
+}
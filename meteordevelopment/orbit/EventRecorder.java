@@ -0,0 +1,111 @@
+package meteordevelopment.orbit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import meteordevelopment.orbit.listeners.IListener;
+
+/**
+ * Ring buffer of the last events dispatched by a bus, see {@link IEventBus#setRecorder(EventRecorder)}. For every event
+ * it keeps when dispatch started and how long it took, which listeners were called and which one cancelled it.
+ * <p>
+ * Events are stored by reference unless a copier is given, which is needed for events that are mutated or reused after
+ * being posted. Events posted through an {@link EventPool} without a copier are not returned to the pool, so the recorder
+ * keeps instances that are never reused. The copy is taken before any listener runs, so
+ * {@link #replay(IEventBus)} posts the events as they were originally posted.
+ */
+public class EventRecorder {
+   private final UnaryOperator<Object> copier;
+   private final long[] timestamps;
+   private final long[] durations;
+   private final Object[] events;
+   private final IListener[][] listeners;
+   private final int[] called;
+   private final int[] cancelledAt;
+   private long recorded;
+
+   public EventRecorder(int capacity, UnaryOperator<Object> copier) {
+      if (capacity <= 0) {
+         throw new IllegalArgumentException("Capacity must be positive.");
+      } else {
+         this.copier = copier;
+         this.timestamps = new long[capacity];
+         this.durations = new long[capacity];
+         this.events = new Object[capacity];
+         this.listeners = new IListener[capacity][];
+         this.called = new int[capacity];
+         this.cancelledAt = new int[capacity];
+      }
+   }
+
+   public EventRecorder(int capacity) {
+      this(capacity, null);
+   }
+
+   Object copy(Object event) {
+      return this.copier != null ? this.copier.apply(event) : event;
+   }
+
+   boolean copies() {
+      return this.copier != null;
+   }
+
+   synchronized void record(long timestamp, long duration, Object event, IListener[] listeners, int called, int cancelledAt) {
+      int i = (int)(this.recorded % (long)this.events.length);
+      this.timestamps[i] = timestamp;
+      this.durations[i] = duration;
+      this.events[i] = event;
+      this.listeners[i] = listeners;
+      this.called[i] = called;
+      this.cancelledAt[i] = cancelledAt;
+      ++this.recorded;
+   }
+
+   public synchronized long getRecordedCount() {
+      return this.recorded;
+   }
+
+   public synchronized List<EventRecord> getRecords() {
+      int size = (int)Math.min(this.recorded, (long)this.events.length);
+      List<EventRecord> records = new ArrayList<>(size);
+
+      for(long n = this.recorded - (long)size; n < this.recorded; ++n) {
+         int i = (int)(n % (long)this.events.length);
+         IListener cancelledBy = this.cancelledAt[i] != -1 ? this.listeners[i][this.cancelledAt[i]] : null;
+         records.add(new EventRecord(this.timestamps[i], this.durations[i], this.events[i], Arrays.copyOf(this.listeners[i], this.called[i]), cancelledBy));
+      }
+
+      return records;
+   }
+
+   public synchronized void clear() {
+      Arrays.fill(this.events, (Object)null);
+      Arrays.fill(this.listeners, (Object)null);
+      this.recorded = 0L;
+   }
+
+   /**
+    * Posts the recorded events to the bus in the order they were recorded, as fast as possible, and returns how many
+    * nanoseconds that took. Intended for a fresh bus with the same listeners subscribed, to benchmark dispatch against
+    * real traffic.
+    */
+   public long replay(IEventBus bus) {
+      List<EventRecord> records = this.getRecords();
+      long start = System.nanoTime();
+
+      for (EventRecord record : records) {
+         Object event = record.event;
+         if (event instanceof ICancellable) {
+            bus.post((ICancellable)event);
+         } else {
+            bus.post(event);
+            if (event instanceof ICoalescible) {
+               bus.flush();
+            }
+         }
+      }
+
+      return System.nanoTime() - start;
+   }
+}
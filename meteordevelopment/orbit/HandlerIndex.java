@@ -0,0 +1,160 @@
+package meteordevelopment.orbit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Precomputed map from classes to their {@link EventHandler} methods, so subscribing does not have to scan every
+ * declared method and parse its annotations. Classes missing from the index are scanned on first use and added to it.
+ * <p>
+ * An index is tied to a version string, usually the version of the application. Loading an index that was saved for a
+ * different version gives an empty index. Each class is stored with a hash of its declared method signatures, a class
+ * whose methods changed without a new version, or whose handlers can no longer be resolved, is rescanned. Adding
+ * {@link EventHandler} to an existing method does not change the hash and needs a new version.
+ */
+public class HandlerIndex {
+   private static final String HEADER = "orbit-handler-index-2 ";
+   private final String version;
+   private final Map<String, String[]> handlers = new ConcurrentHashMap<>();
+   private final AtomicInteger changes = new AtomicInteger();
+   private volatile int savedChanges;
+
+   public HandlerIndex(String version) {
+      this.version = version;
+   }
+
+   /**
+    * Loads the index saved at the path. A missing, unreadable or outdated file gives an empty index, its classes are
+    * then scanned on first use as if there was no index.
+    */
+   public static HandlerIndex load(Path path, String version) {
+      HandlerIndex index = new HandlerIndex(version);
+
+      try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+         if (!(HEADER + version).equals(reader.readLine())) {
+            index.changes.incrementAndGet();
+            return index;
+         }
+
+         String line;
+         while((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+               String[] parts = line.split("\t");
+               index.handlers.put(parts[0], Arrays.copyOfRange(parts, 1, parts.length));
+            }
+         }
+      } catch (IOException e) {
+         index.handlers.clear();
+         index.changes.incrementAndGet();
+      }
+
+      return index;
+   }
+
+   /** Writes the index to the path, it is only marked as saved when writing succeeded. */
+   public void save(Path path) throws IOException {
+      int changes = this.changes.get();
+      Map<String, String[]> sorted = new TreeMap<>(this.handlers);
+      Path parent = path.toAbsolutePath().getParent();
+      if (parent != null) {
+         Files.createDirectories(parent);
+      }
+
+      try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+         writer.write(HEADER + this.version);
+         writer.newLine();
+
+         for (Entry<String, String[]> entry : sorted.entrySet()) {
+            writer.write(entry.getKey());
+            for (String method : entry.getValue()) {
+               writer.write('\t');
+               writer.write(method);
+            }
+
+            writer.newLine();
+         }
+      }
+
+      this.savedChanges = changes;
+   }
+
+   public boolean isDirty() {
+      return this.changes.get() != this.savedChanges;
+   }
+
+   public int size() {
+      return this.handlers.size();
+   }
+
+   Method[] getHandlers(Class<?> klass, Function<Class<?>, Method[]> scanner) {
+      String[] entries = this.handlers.get(klass.getName());
+      String signature = signature(klass);
+      if (entries != null && entries.length > 0 && entries[0].equals(signature)) {
+         Method[] methods = this.resolve(klass, entries);
+         if (methods != null) {
+            return methods;
+         }
+      }
+
+      Method[] methods = scanner.apply(klass);
+      String[] newEntries = new String[methods.length + 1];
+      newEntries[0] = signature;
+
+      for(int i = 0; i < methods.length; ++i) {
+         newEntries[i + 1] = methods[i].getName() + "(" + methods[i].getParameterTypes()[0].getName() + ")";
+      }
+
+      this.handlers.put(klass.getName(), newEntries);
+      this.changes.incrementAndGet();
+      return methods;
+   }
+
+   /** Hash of the declared method signatures, independent of the order they are returned in. */
+   private static String signature(Class<?> klass) {
+      int hash = 0;
+      for (Method method : klass.getDeclaredMethods()) {
+         hash += method.toString().hashCode();
+      }
+
+      return Integer.toHexString(hash);
+   }
+
+   private Method[] resolve(Class<?> klass, String[] entries) {
+      List<Method> methods = new ArrayList<>(entries.length - 1);
+
+      try {
+         for (String entry : Arrays.asList(entries).subList(1, entries.length)) {
+            int paren = entry.lastIndexOf('(');
+            if (paren == -1 || !entry.endsWith(")")) {
+               return null;
+            }
+
+            Class<?> type = Class.forName(entry.substring(paren + 1, entry.length() - 1), false, klass.getClassLoader());
+            Method method = klass.getDeclaredMethod(entry.substring(0, paren), type);
+            if (!method.isAnnotationPresent(EventHandler.class)) {
+               return null;
+            }
+
+            methods.add(method);
+         }
+      } catch (LinkageError | ReflectiveOperationException e) {
+         return null;
+      }
+
+      return methods.toArray(new Method[0]);
+   }
+}
@@ -0,0 +1,10 @@
+package meteordevelopment.orbit;
+
+/**
+ * Marks an event whose listeners only care about the latest value. Posting it stores it in a slot for its class,
+ * replacing any event of the same class that has not been delivered yet, and listeners are called once per
+ * {@link IEventBus#flush()}, async listeners only when one of them was posted with {@link IEventBus#postAsync(Object)}.
+ * Events posted through {@link IEventBus#post(ICancellable)} are always delivered immediately.
+ */
+public interface ICoalescible {
+}
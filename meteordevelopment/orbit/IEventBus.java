@@ -1,8 +1,19 @@
 package meteordevelopment.orbit;
 
+import java.util.Collection;
+import java.util.function.Consumer;
 import meteordevelopment.orbit.listeners.IListener;
 import meteordevelopment.orbit.listeners.LambdaListener;
 
+/**
+ * Events can be posted from any number of threads at the same time. Posting never takes a lock, each post sees the
+ * listeners of its event type either completely before or completely after a concurrent (un)subscribe or batch, and
+ * listeners may therefore be called concurrently by different posting threads. Subscribing and unsubscribing are
+ * serialized against each other.
+ * <p>
+ * The cancelled state lives on the event object, so a cancellable event instance must only be posted by one thread at
+ * a time, threads posting the same event type concurrently need their own instances.
+ */
 public interface IEventBus {
    void registerLambdaFactory(String var1, LambdaListener.Factory var2);
 
@@ -12,15 +23,40 @@ public interface IEventBus {
 
    <T extends ICancellable> T post(T var1);
 
+   /**
+    * Calls the synchronous listeners and then queues the event for the async listeners, unless it was cancelled. A
+    * {@link ICoalescible} event is coalesced like with {@link #post(Object)}, the next {@link #flush()} then passes the
+    * latest event of its type to both.
+    */
+   <T> T postAsync(T var1);
+
+   void flush();
+
+   /**
+    * Records every event dispatched by this bus into the recorder until it is set to null. Recording takes a lock per
+    * event and bypasses generated invokers, so it is meant for diagnosing problems, not for normal operation.
+    */
+   void setRecorder(EventRecorder var1);
+
+   EventRecorder getRecorder();
+
    void subscribe(Object var1);
 
    void subscribe(Class<?> var1);
 
    void subscribe(IListener var1);
 
+   /**
+    * Subscribes all objects at once. Their listeners are built in parallel on the common fork join pool and then
+    * registered in a single commit, in the order of the collection.
+    */
+   void subscribeAll(Collection<?> var1);
+
    void unsubscribe(Object var1);
 
    void unsubscribe(Class<?> var1);
 
    void unsubscribe(IListener var1);
+
+   void batch(Consumer<BatchEditor> var1);
 }
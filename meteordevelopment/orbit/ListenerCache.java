@@ -0,0 +1,126 @@
+package meteordevelopment.orbit;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import meteordevelopment.orbit.listeners.IListener;
+
+/**
+ * Caches the listeners built for subscribed objects, keyed by object identity.
+ * <p>
+ * Listeners hold a strong reference to their object, so they are only held strongly while the object is subscribed.
+ * Otherwise they are kept behind a weak reference, so they are only shared while a batch that has not been committed
+ * yet still uses them. Once unsubscribed, nothing keeps the object alive and its entry is dropped when it is collected.
+ */
+class ListenerCache {
+   private final Map<ListenerCache.Key, ListenerCache.Entry> entries = new HashMap<>();
+   private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+   public List<IListener> get(Object object, Function<Object, List<IListener>> factory) {
+      List<IListener> listeners;
+      synchronized(this) {
+         listeners = this.update(object, 0, null);
+      }
+
+      if (listeners == null) {
+         List<IListener> created = factory.apply(object);
+         synchronized(this) {
+            listeners = this.update(object, 0, created);
+         }
+      }
+
+      return listeners;
+   }
+
+   /**
+    * Adjusts the subscription count of the object's entry, called once a (un)subscription has been committed so that
+    * abandoned batches leave the count untouched. The listeners are the ones returned by {@link #get(Object, Function)}.
+    */
+   public synchronized void subscribed(Object object, List<IListener> listeners, int subscriptions) {
+      this.update(object, subscriptions, listeners);
+   }
+
+   private List<IListener> update(Object object, int subscriptions, List<IListener> created) {
+      this.expunge();
+      ListenerCache.Entry entry = this.entries.get(new ListenerCache.Key(object, null));
+      List<IListener> listeners = entry != null ? entry.get() : null;
+      if (listeners == null) {
+         if (created == null) {
+            return null;
+         }
+
+         listeners = created;
+         if (entry == null) {
+            entry = new ListenerCache.Entry();
+            this.entries.put(new ListenerCache.Key(object, this.queue), entry);
+         }
+      }
+
+      entry.subscriptions = Math.max(entry.subscriptions + subscriptions, 0);
+      entry.set(listeners);
+      return listeners;
+   }
+
+   private void expunge() {
+      Reference<?> key;
+      while((key = this.queue.poll()) != null) {
+         this.entries.remove(key);
+      }
+
+   }
+
+   private static class Key extends WeakReference<Object> {
+      private final int hash;
+
+      public Key(Object object, ReferenceQueue<Object> queue) {
+         super(object, queue);
+         this.hash = System.identityHashCode(object);
+      }
+
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         } else if (!(o instanceof ListenerCache.Key)) {
+            return false;
+         } else {
+            Object object = this.get();
+            return object != null && object == ((ListenerCache.Key)o).get();
+         }
+      }
+
+      public int hashCode() {
+         return this.hash;
+      }
+   }
+
+   private static class Entry {
+      private List<IListener> listeners;
+      private WeakReference<List<IListener>> idleListeners;
+      private int subscriptions;
+
+      public List<IListener> get() {
+         if (this.listeners != null) {
+            return this.listeners;
+         } else {
+            return this.idleListeners != null ? this.idleListeners.get() : null;
+         }
+      }
+
+      public void set(List<IListener> listeners) {
+         if (this.subscriptions > 0) {
+            this.listeners = listeners;
+            this.idleListeners = null;
+         } else {
+            this.listeners = null;
+            if (this.idleListeners == null || this.idleListeners.get() != listeners) {
+               this.idleListeners = new WeakReference<>(listeners);
+            }
+         }
+
+      }
+   }
+}
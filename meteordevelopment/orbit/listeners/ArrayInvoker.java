@@ -0,0 +1,66 @@
+package meteordevelopment.orbit.listeners;
+
+import meteordevelopment.orbit.EventBand;
+import meteordevelopment.orbit.ICancellable;
+
+public class ArrayInvoker implements IInvoker {
+   private final IListener[] listeners;
+   private final int cancelling;
+   private final int monitors;
+
+   public ArrayInvoker(IListener[] listeners) {
+      this.listeners = listeners;
+      int cancelling = 0;
+
+      for(int i = 0; i < listeners.length; ++i) {
+         if (listeners[i].cancels()) {
+            cancelling = i + 1;
+         }
+      }
+
+      this.cancelling = cancelling;
+      this.monitors = getMonitors(listeners);
+   }
+
+   public void call(Object event) {
+      for(int i = 0; i < this.listeners.length; ++i) {
+         this.listeners[i].call(event);
+      }
+
+   }
+
+   public void call(ICancellable event) {
+      if (this.listeners.length > 0) {
+         event.setCancelled(false);
+
+         int i;
+         for(i = 0; i < this.cancelling; ++i) {
+            this.listeners[i].call(event);
+            if (event.isCancelled()) {
+               return;
+            }
+         }
+
+         while(i < this.monitors) {
+            this.listeners[i++].call(event);
+         }
+
+         if (i < this.listeners.length && !event.isCancelled()) {
+            while(i < this.listeners.length) {
+               this.listeners[i++].call(event);
+            }
+         }
+      }
+
+   }
+
+   static int getMonitors(IListener[] listeners) {
+      int monitors = listeners.length;
+
+      while(monitors > 0 && listeners[monitors - 1].getBand() == EventBand.MONITOR) {
+         --monitors;
+      }
+
+      return monitors;
+   }
+}
@@ -1,24 +1,65 @@
 package meteordevelopment.orbit.listeners;
 
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import meteordevelopment.orbit.EventBand;
 
 public class ConsumerListener<T> implements IListener {
    private final Class<T> target;
    private final int priority;
+   private final boolean isAsync;
+   private final boolean cancels;
+   private final boolean isStatic;
+   private final String name;
+   private final Object key;
+   private final int band;
+   private final Predicate<? super T> filter;
    private final Consumer<T> executor;
 
-   public ConsumerListener(Class<T> target, int priority, Consumer<T> executor) {
+   public ConsumerListener(Class<T> target, int band, int priority, boolean isAsync, boolean cancels, boolean isStatic, String name, Object key, Predicate<? super T> filter, Consumer<T> executor) {
       this.target = target;
+      this.band = band;
       this.priority = priority;
+      this.isAsync = isAsync;
+      this.cancels = cancels && band != EventBand.MONITOR;
+      this.isStatic = isStatic;
+      this.name = name;
+      this.key = key;
+      this.filter = filter;
       this.executor = executor;
    }
 
+   public ConsumerListener(Class<T> target, int priority, boolean isAsync, boolean cancels, boolean isStatic, String name, Object key, Predicate<? super T> filter, Consumer<T> executor) {
+      this(target, EventBand.NORMAL, priority, isAsync, cancels, isStatic, name, key, filter, executor);
+   }
+
+   public ConsumerListener(Class<T> target, int priority, boolean isAsync, boolean cancels, boolean isStatic, String name, Consumer<T> executor) {
+      this(target, priority, isAsync, cancels, isStatic, name, null, null, executor);
+   }
+
+   public ConsumerListener(Class<T> target, int priority, boolean isAsync, Consumer<T> executor) {
+      this(target, priority, isAsync, true, false, (String)null, executor);
+   }
+
+   public ConsumerListener(Class<T> target, int priority, Object key, Predicate<? super T> filter, Consumer<T> executor) {
+      this(target, priority, false, true, false, (String)null, key, filter, executor);
+   }
+
+   public ConsumerListener(Class<T> target, int priority, Consumer<T> executor) {
+      this(target, priority, false, executor);
+   }
+
    public ConsumerListener(Class<T> target, Consumer<T> executor) {
       this(target, 0, executor);
    }
 
+   @SuppressWarnings("unchecked")
    public void call(Object event) {
-      this.executor.accept(event);
+      T targetEvent = (T)event;
+      if (this.filter == null || this.filter.test(targetEvent)) {
+         this.executor.accept(targetEvent);
+      }
+
    }
 
    public Class<T> getTarget() {
@@ -29,7 +70,27 @@ public class ConsumerListener<T> implements IListener {
       return this.priority;
    }
 
+   public boolean isAsync() {
+      return this.isAsync;
+   }
+
+   public boolean cancels() {
+      return this.cancels;
+   }
+
+   public Object getKey() {
+      return this.key;
+   }
+
+   public int getBand() {
+      return this.band;
+   }
+
    public boolean isStatic() {
-      return false;
+      return this.isStatic;
+   }
+
+   public String toString() {
+      return this.name != null ? this.name : super.toString();
    }
 }
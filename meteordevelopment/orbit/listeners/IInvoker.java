@@ -0,0 +1,9 @@
+package meteordevelopment.orbit.listeners;
+
+import meteordevelopment.orbit.ICancellable;
+
+public interface IInvoker {
+   void call(Object var1);
+
+   void call(ICancellable var1);
+}
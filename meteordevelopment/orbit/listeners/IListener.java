@@ -1,5 +1,7 @@
 package meteordevelopment.orbit.listeners;
 
+import meteordevelopment.orbit.EventBand;
+
 public interface IListener {
    void call(Object var1);
 
@@ -7,6 +9,27 @@ public interface IListener {
 
    int getPriority();
 
+   default boolean isAsync() {
+      return false;
+   }
+
+   default boolean cancels() {
+      return true;
+   }
+
+   /**
+    * Listeners with a key are only called for events whose discriminator returns an equal key, see
+    * {@link meteordevelopment.orbit.EventBus#registerDiscriminator(Class, java.util.function.Function)}. Null means the
+    * listener is called for every event.
+    */
+   default Object getKey() {
+      return null;
+   }
+
+   default int getBand() {
+      return EventBand.NORMAL;
+   }
+
    /** @deprecated */
    @Deprecated
    boolean isStatic();
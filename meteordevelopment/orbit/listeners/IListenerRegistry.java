@@ -0,0 +1,12 @@
+package meteordevelopment.orbit.listeners;
+
+import java.util.List;
+
+/**
+ * Creates the listeners for the {@link meteordevelopment.orbit.EventHandler} methods declared by one class, without
+ * reflection. Implementations are generated at compile time as {@code <class name>$OrbitListeners} and are picked up
+ * by the event bus when subscribing. When the object is null only listeners for static methods are added.
+ */
+public interface IListenerRegistry {
+   void getListeners(Object var1, List<IListener> var2);
+}
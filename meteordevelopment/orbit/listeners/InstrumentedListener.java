@@ -0,0 +1,74 @@
+package meteordevelopment.orbit.listeners;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import meteordevelopment.orbit.ICancellable;
+
+public class InstrumentedListener implements IListener {
+   private final IListener listener;
+   private final LongAdder calls = new LongAdder();
+   private final LongAdder totalNanos = new LongAdder();
+   private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+   private final LongAdder cancellations = new LongAdder();
+
+   public InstrumentedListener(IListener listener) {
+      this.listener = listener;
+   }
+
+   public void call(Object event) {
+      boolean wasCancelled = event instanceof ICancellable && ((ICancellable)event).isCancelled();
+      long start = System.nanoTime();
+      this.listener.call(event);
+      long time = System.nanoTime() - start;
+      this.calls.increment();
+      this.totalNanos.add(time);
+      this.maxNanos.accumulate(time);
+      if (!wasCancelled && event instanceof ICancellable && ((ICancellable)event).isCancelled()) {
+         this.cancellations.increment();
+      }
+
+   }
+
+   public ListenerStats getStats() {
+      return new ListenerStats(this.listener, this.calls.sum(), this.totalNanos.sum(), this.maxNanos.get(), this.cancellations.sum());
+   }
+
+   public void reset() {
+      this.calls.reset();
+      this.totalNanos.reset();
+      this.maxNanos.reset();
+      this.cancellations.reset();
+   }
+
+   public IListener getListener() {
+      return this.listener;
+   }
+
+   public Class<?> getTarget() {
+      return this.listener.getTarget();
+   }
+
+   public int getPriority() {
+      return this.listener.getPriority();
+   }
+
+   public boolean isAsync() {
+      return this.listener.isAsync();
+   }
+
+   public boolean cancels() {
+      return this.listener.cancels();
+   }
+
+   public Object getKey() {
+      return this.listener.getKey();
+   }
+
+   public int getBand() {
+      return this.listener.getBand();
+   }
+
+   public boolean isStatic() {
+      return this.listener.isStatic();
+   }
+}
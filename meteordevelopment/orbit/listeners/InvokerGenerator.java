@@ -0,0 +1,155 @@
+package meteordevelopment.orbit.listeners;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class InvokerGenerator {
+   public static final int MAX_LISTENERS = 256;
+   private static final String NAME = "meteordevelopment/orbit/listeners/GeneratedInvoker";
+   private static final String INVOKER = "meteordevelopment/orbit/listeners/IInvoker";
+   private static final String LISTENER = "meteordevelopment/orbit/listeners/IListener";
+   private static final String CANCELLABLE = "meteordevelopment/orbit/ICancellable";
+   private static final String CONSUMER = "java/util/function/Consumer";
+   private static Method defineHiddenClassMethod;
+   private static Object noClassOptions;
+   private static final boolean enabled;
+   private static final AtomicInteger failures = new AtomicInteger();
+
+   /**
+    * Returns a generated invoker calling the listeners in order. Falls back to an {@link ArrayInvoker} when hidden classes
+    * are not available, there are too many listeners or generating the class fails, see {@link #getFailures()}.
+    */
+   public static IInvoker create(IListener[] listeners) {
+      if (enabled && listeners.length <= MAX_LISTENERS) {
+         Object[] targets = new Object[listeners.length];
+         boolean[] cancels = new boolean[listeners.length];
+
+         for(int i = 0; i < listeners.length; ++i) {
+            targets[i] = listeners[i] instanceof LambdaListener && !((LambdaListener)listeners[i]).hasFilter() ? ((LambdaListener)listeners[i]).getExecutor() : listeners[i];
+            cancels[i] = listeners[i].cancels();
+         }
+
+         try {
+            Lookup lookup = (Lookup)defineHiddenClassMethod.invoke(MethodHandles.lookup(), generate(targets, cancels, ArrayInvoker.getMonitors(listeners)), false, noClassOptions);
+            return (IInvoker)lookup.lookupClass().getConstructor(Object[].class).newInstance((Object)targets);
+         } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            failures.incrementAndGet();
+         }
+      }
+
+      return new ArrayInvoker(listeners);
+   }
+
+   public static boolean isEnabled() {
+      return enabled;
+   }
+
+   /** Returns how many times generating an invoker failed and an array invoker was used instead. */
+   public static int getFailures() {
+      return failures.get();
+   }
+
+   private static byte[] generate(Object[] targets, boolean[] cancels, int monitors) {
+      ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+      cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, NAME, (String)null, "java/lang/Object", new String[]{INVOKER});
+
+      for(int i = 0; i < targets.length; ++i) {
+         cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "l" + i, descriptor(targets[i]), (String)null, (Object)null).visitEnd();
+      }
+
+      MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", (String)null, (String[])null);
+      mv.visitCode();
+      mv.visitVarInsn(Opcodes.ALOAD, 0);
+      mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+
+      for(int i = 0; i < targets.length; ++i) {
+         mv.visitVarInsn(Opcodes.ALOAD, 0);
+         mv.visitVarInsn(Opcodes.ALOAD, 1);
+         mv.visitLdcInsn(i);
+         mv.visitInsn(Opcodes.AALOAD);
+         mv.visitTypeInsn(Opcodes.CHECKCAST, owner(targets[i]));
+         mv.visitFieldInsn(Opcodes.PUTFIELD, NAME, "l" + i, descriptor(targets[i]));
+      }
+
+      mv.visitInsn(Opcodes.RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+      generateCall(cw, targets, (boolean[])null, -1, "(Ljava/lang/Object;)V");
+      generateCall(cw, targets, cancels, monitors, "(L" + CANCELLABLE + ";)V");
+      cw.visitEnd();
+      return cw.toByteArray();
+   }
+
+   private static void generateCall(ClassWriter cw, Object[] targets, boolean[] cancels, int monitors, String descriptor) {
+      MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "call", descriptor, (String)null, (String[])null);
+      mv.visitCode();
+      if (cancels != null) {
+         mv.visitVarInsn(Opcodes.ALOAD, 1);
+         mv.visitInsn(Opcodes.ICONST_0);
+         mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CANCELLABLE, "setCancelled", "(Z)V", true);
+      }
+
+      for(int i = 0; i < targets.length; ++i) {
+         if (i == monitors && i > 0 && !cancels[i - 1]) {
+            Label monitor = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CANCELLABLE, "isCancelled", "()Z", true);
+            mv.visitJumpInsn(Opcodes.IFEQ, monitor);
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitLabel(monitor);
+         }
+
+         mv.visitVarInsn(Opcodes.ALOAD, 0);
+         mv.visitFieldInsn(Opcodes.GETFIELD, NAME, "l" + i, descriptor(targets[i]));
+         mv.visitVarInsn(Opcodes.ALOAD, 1);
+         if (targets[i] instanceof IListener) {
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, LISTENER, "call", "(Ljava/lang/Object;)V", true);
+         } else {
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CONSUMER, "accept", "(Ljava/lang/Object;)V", true);
+         }
+
+         if (cancels != null && cancels[i] && i < targets.length - 1) {
+            Label next = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, CANCELLABLE, "isCancelled", "()Z", true);
+            mv.visitJumpInsn(Opcodes.IFEQ, next);
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitLabel(next);
+         }
+      }
+
+      mv.visitInsn(Opcodes.RETURN);
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+   }
+
+   private static String owner(Object target) {
+      return target instanceof IListener ? LISTENER : CONSUMER;
+   }
+
+   private static String descriptor(Object target) {
+      return "L" + owner(target) + ";";
+   }
+
+   static {
+      boolean available;
+      try {
+         Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+         noClassOptions = Array.newInstance(classOption, 0);
+         defineHiddenClassMethod = Lookup.class.getMethod("defineHiddenClass", byte[].class, Boolean.TYPE, noClassOptions.getClass());
+         available = true;
+      } catch (ClassNotFoundException | NoSuchMethodException e) {
+         available = false;
+      }
+
+      enabled = available;
+
+   }
+}
@@ -0,0 +1,30 @@
+package meteordevelopment.orbit.listeners;
+
+import java.util.Map;
+import java.util.function.Function;
+import meteordevelopment.orbit.ICancellable;
+
+public class KeyedInvoker implements IInvoker {
+   private final Function<Object, Object> discriminator;
+   private final Map<Object, IInvoker> invokers;
+   private final IInvoker unkeyed;
+
+   public KeyedInvoker(Function<Object, Object> discriminator, Map<Object, IInvoker> invokers, IInvoker unkeyed) {
+      this.discriminator = discriminator;
+      this.invokers = invokers;
+      this.unkeyed = unkeyed;
+   }
+
+   private IInvoker get(Object event) {
+      IInvoker invoker = this.invokers.get(this.discriminator.apply(event));
+      return invoker != null ? invoker : this.unkeyed;
+   }
+
+   public void call(Object event) {
+      this.get(event).call(event);
+   }
+
+   public void call(ICancellable event) {
+      this.get(event).call(event);
+   }
+}
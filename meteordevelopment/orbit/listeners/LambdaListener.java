@@ -10,6 +10,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import meteordevelopment.orbit.EventBand;
 import meteordevelopment.orbit.EventHandler;
 
 public class LambdaListener implements IListener {
@@ -19,50 +21,100 @@ public class LambdaListener implements IListener {
    private final Class<?> target;
    private final boolean isStatic;
    private final int priority;
-   private Consumer<Object> executor;
+   private final boolean isAsync;
+   private final boolean cancels;
+   private final String name;
+   private final Object key;
+   private final int band;
+   private final Predicate<Object> filter;
+   private LambdaListener.Factory factory;
+   private Class<?> klass;
+   private Object object;
+   private Method method;
+   private volatile Consumer<Object> executor;
 
-   public LambdaListener(LambdaListener.Factory factory, Class<?> klass, Object object, Method method) {
+   public LambdaListener(LambdaListener.Factory factory, Class<?> klass, Object object, Method method, Predicate<Object> filter) {
       this.target = method.getParameters()[0].getType();
       this.isStatic = Modifier.isStatic(method.getModifiers());
-      this.priority = ((EventHandler)method.getAnnotation(EventHandler.class)).priority();
+      EventHandler handler = method.getAnnotation(EventHandler.class);
+      this.priority = handler.priority();
+      this.isAsync = handler.async();
+      this.band = handler.band();
+      this.cancels = handler.cancels() && this.band != EventBand.MONITOR;
+      Class<?> key = handler.key();
+      this.key = key != Void.class ? key : null;
+      this.filter = filter;
+      this.name = klass.getName() + "." + method.getName() + "(" + this.target.getSimpleName() + ")";
+      this.factory = factory;
+      this.klass = klass;
+      this.object = object;
+      this.method = method;
+   }
+
+   public LambdaListener(LambdaListener.Factory factory, Class<?> klass, Object object, Method method) {
+      this(factory, klass, object, method, null);
+   }
+
+   public void call(Object event) {
+      Consumer<Object> executor = this.executor;
+      if (executor == null) {
+         executor = this.getExecutor();
+      }
+
+      if (this.filter == null || this.filter.test(event)) {
+         executor.accept(event);
+      }
 
+   }
+
+   public void materialize() {
+      this.getExecutor();
+   }
+
+   synchronized Consumer<Object> getExecutor() {
+      if (this.executor == null) {
+         this.executor = this.createExecutor();
+         this.factory = null;
+         this.klass = null;
+         this.object = null;
+         this.method = null;
+      }
+
+      return this.executor;
+   }
+
+   @SuppressWarnings("unchecked")
+   private Consumer<Object> createExecutor() {
       try {
-         String name = method.getName();
+         String name = this.method.getName();
          Lookup lookup;
          if (isJava1dot8) {
             boolean a = lookupConstructor.isAccessible();
             lookupConstructor.setAccessible(true);
-            lookup = (Lookup)lookupConstructor.newInstance(klass);
+            lookup = (Lookup)lookupConstructor.newInstance(this.klass);
             lookupConstructor.setAccessible(a);
          } else {
-            lookup = factory.create(privateLookupInMethod, klass);
+            lookup = this.factory.create(privateLookupInMethod, this.klass);
          }
 
-         MethodType methodType = MethodType.methodType(Void.TYPE, method.getParameters()[0].getType());
+         MethodType methodType = MethodType.methodType(Void.TYPE, this.target);
          MethodHandle methodHandle;
          MethodType invokedType;
          if (this.isStatic) {
-            methodHandle = lookup.findStatic(klass, name, methodType);
+            methodHandle = lookup.findStatic(this.klass, name, methodType);
             invokedType = MethodType.methodType(Consumer.class);
          } else {
-            methodHandle = lookup.findVirtual(klass, name, methodType);
-            invokedType = MethodType.methodType(Consumer.class, klass);
+            methodHandle = lookup.findVirtual(this.klass, name, methodType);
+            invokedType = MethodType.methodType(Consumer.class, this.klass);
          }
 
          MethodHandle lambdaFactory = LambdaMetafactory.metafactory(lookup, "accept", invokedType, MethodType.methodType(Void.TYPE, Object.class), methodHandle, methodType).getTarget();
-         if (this.isStatic) {
-            this.executor = lambdaFactory.invoke();
-         } else {
-            this.executor = lambdaFactory.invoke(object);
-         }
-      } catch (Throwable var11) {
-         var11.printStackTrace();
+         return (Consumer<Object>)(this.isStatic ? lambdaFactory.invoke() : lambdaFactory.invoke(this.object));
+      } catch (Throwable var6) {
+         var6.printStackTrace();
+         return (event) -> {
+         };
       }
-
-   }
-
-   public void call(Object event) {
-      this.executor.accept(event);
    }
 
    public Class<?> getTarget() {
@@ -73,10 +125,34 @@ public class LambdaListener implements IListener {
       return this.priority;
    }
 
+   public boolean isAsync() {
+      return this.isAsync;
+   }
+
+   public boolean cancels() {
+      return this.cancels;
+   }
+
+   public Object getKey() {
+      return this.key;
+   }
+
+   public int getBand() {
+      return this.band;
+   }
+
+   boolean hasFilter() {
+      return this.filter != null;
+   }
+
    public boolean isStatic() {
       return this.isStatic;
    }
 
+   public String toString() {
+      return this.name;
+   }
+
    static {
       try {
          isJava1dot8 = System.getProperty("java.version").startsWith("1.8");
@@ -0,0 +1,25 @@
+package meteordevelopment.orbit.listeners;
+
+public class ListenerStats {
+   public final IListener listener;
+   public final long calls;
+   public final long totalNanos;
+   public final long maxNanos;
+   public final long cancellations;
+
+   public ListenerStats(IListener listener, long calls, long totalNanos, long maxNanos, long cancellations) {
+      this.listener = listener;
+      this.calls = calls;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+      this.cancellations = cancellations;
+   }
+
+   public double getAverageNanos() {
+      return this.calls == 0L ? 0.0D : (double)this.totalNanos / (double)this.calls;
+   }
+
+   public String toString() {
+      return String.format("%s: %d calls, %.3f ms total, %.1f us avg, %.1f us max, %d cancelled", this.listener, this.calls, (double)this.totalNanos / 1000000.0D, this.getAverageNanos() / 1000.0D, (double)this.maxNanos / 1000.0D, this.cancellations);
+   }
+}
@@ -0,0 +1,180 @@
+package meteordevelopment.starscript;
+
+import java.util.function.Supplier;
+import meteordevelopment.starscript.value.Value;
+
+/**
+ * A {@link Script} translated to JVM bytecode by {@link meteordevelopment.starscript.compiler.BytecodeCompiler}, run
+ * with {@link Starscript#run(CompiledScript, StringBuilder)}. Produces the same sections as interpreting the script.
+ * Intermediate values live on the JVM stack, only the callee and arguments of function calls are pushed to the
+ * {@link Starscript} stack, so functions must pop exactly the arguments they were called with.
+ * <p>
+ * The static methods are the operations used by generated subclasses and behave like the matching instructions.
+ */
+public abstract class CompiledScript {
+   public abstract Section run(Starscript var1, StringBuilder var2);
+
+   protected static Value add(Starscript ss, Value a, Value b) {
+      if (a.isNumber() && b.isNumber()) {
+         return Value.number(a.getNumber() + b.getNumber());
+      } else if (a.isString()) {
+         return Value.string(a.getString() + b.toString());
+      } else {
+         ss.error("Can only add 2 numbers or 1 string and other value.");
+         return null;
+      }
+   }
+
+   protected static Value subtract(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("Can only subtract 2 numbers.");
+      }
+
+      return Value.number(a.getNumber() - b.getNumber());
+   }
+
+   protected static Value multiply(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("Can only multiply 2 numbers.");
+      }
+
+      return Value.number(a.getNumber() * b.getNumber());
+   }
+
+   protected static Value divide(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("Can only divide 2 numbers.");
+      }
+
+      return Value.number(a.getNumber() / b.getNumber());
+   }
+
+   protected static Value modulo(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("Can only modulo 2 numbers.");
+      }
+
+      return Value.number(a.getNumber() % b.getNumber());
+   }
+
+   protected static Value power(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("Can only power 2 numbers.");
+      }
+
+      return Value.number(Math.pow(a.getNumber(), b.getNumber()));
+   }
+
+   protected static Value not(Value a) {
+      return Value.bool(!a.isTruthy());
+   }
+
+   protected static Value negate(Starscript ss, Value a) {
+      if (!a.isNumber()) {
+         ss.error("This operation requires a number.");
+      }
+
+      return Value.number(-a.getNumber());
+   }
+
+   protected static Value equals(Value a, Value b) {
+      return Value.bool(b.equals(a));
+   }
+
+   protected static Value notEquals(Value a, Value b) {
+      return Value.bool(!b.equals(a));
+   }
+
+   protected static Value greater(Starscript ss, Value a, Value b) {
+      checkNumbers(ss, a, b);
+      return Value.bool(a.getNumber() > b.getNumber());
+   }
+
+   protected static Value greaterEqual(Starscript ss, Value a, Value b) {
+      checkNumbers(ss, a, b);
+      return Value.bool(a.getNumber() >= b.getNumber());
+   }
+
+   protected static Value less(Starscript ss, Value a, Value b) {
+      checkNumbers(ss, a, b);
+      return Value.bool(a.getNumber() < b.getNumber());
+   }
+
+   protected static Value lessEqual(Starscript ss, Value a, Value b) {
+      checkNumbers(ss, a, b);
+      return Value.bool(a.getNumber() <= b.getNumber());
+   }
+
+   private static void checkNumbers(Starscript ss, Value a, Value b) {
+      if (!a.isNumber() || !b.isNumber()) {
+         ss.error("This operation requires 2 number.");
+      }
+
+   }
+
+   protected static Value variable(Starscript ss, String name) {
+      Supplier<Value> s = ss.getGlobals().get(name);
+      return s != null ? s.get() : Value.null_();
+   }
+
+   protected static Value get(Value a, String name) {
+      if (!a.isMap()) {
+         return Value.null_();
+      } else {
+         Supplier<Value> s = a.getMap().get(name);
+         return s != null ? s.get() : Value.null_();
+      }
+   }
+
+   protected static Value call(Starscript ss, int argCount) {
+      Value a = ss.peek(argCount);
+      if (a.isFunction()) {
+         Value r = a.getFunction().run(ss, argCount);
+         ss.pop();
+         return r;
+      } else {
+         ss.error("Tried to call a %s, can only call functions.", a.type);
+         return null;
+      }
+   }
+
+   protected static void append(StringBuilder sb, Value a) {
+      sb.append(a.toString());
+   }
+
+   protected static void getAppend(StringBuilder sb, Value a, String name) {
+      if (!a.isMap()) {
+         sb.append(Value.null_());
+      } else {
+         sb.append(get(a, name).toString());
+      }
+
+   }
+
+   protected static void variableGetAppend(StringBuilder sb, Starscript ss, String variable, String name) {
+      Value a = variable(ss, variable);
+      if (a.isMap()) {
+         sb.append(get(a, name).toString());
+      }
+
+   }
+
+   protected static Section section(Section section, int index, StringBuilder sb) {
+      Section next = new Section(index, sb.toString());
+      if (section != null) {
+         section.next = next;
+      }
+
+      sb.setLength(0);
+      return next;
+   }
+
+   protected static Section end(Section first, Section section, int index, StringBuilder sb) {
+      if (first != null) {
+         section.next = new Section(index, sb.toString());
+         return first;
+      } else {
+         return new Section(index, sb.toString());
+      }
+   }
+}
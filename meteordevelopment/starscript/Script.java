@@ -3,6 +3,7 @@ package meteordevelopment.starscript;
 import java.util.ArrayList;
 import java.util.List;
 import meteordevelopment.starscript.value.Value;
+import meteordevelopment.starscript.value.ValueMap;
 
 public class Script {
    public byte[] code = new byte[8];
@@ -64,6 +65,47 @@ public class Script {
       this.code[offset + 1] = (byte)(jump & 255);
    }
 
+   /**
+    * Resolves the global names used by this script to slots of the globals, see {@link ValueMap#getSlot(String)}.
+    * Returns an array mapping constant indices of global names to their slot. Redefining a global updates its slot, so
+    * the result stays valid for these globals. {@link Starscript} links each script once and keeps the result per
+    * instance, so a script can be shared by instances with different globals.
+    */
+   public int[] link(ValueMap globals) {
+      int[] slots = new int[this.constants.size()];
+
+      for(int i = 0; i < this.size; ++i) {
+         switch(Instruction.valueOf(this.code[i])) {
+         case AddConstant:
+         case Get:
+         case GetAppend:
+         case Constant:
+         case ConstantAppend:
+         case Call:
+         case CallAppend:
+         case Section:
+            ++i;
+            break;
+         case Variable:
+         case VariableAppend:
+            ++i;
+            slots[this.code[i]] = globals.getSlot(this.constants.get(this.code[i]).getString());
+            break;
+         case Jump:
+         case JumpIfTrue:
+         case JumpIfFalse:
+            i += 2;
+            break;
+         case VariableGet:
+         case VariableGetAppend:
+            slots[this.code[i + 1]] = globals.getSlot(this.constants.get(this.code[i + 1]).getString());
+            i += 2;
+         }
+      }
+
+      return slots;
+   }
+
    public void decompile() {
       for(int i = 0; i < this.size; ++i) {
          Instruction insn = Instruction.valueOf(this.code[i]);
@@ -0,0 +1,111 @@
+package meteordevelopment.starscript;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import meteordevelopment.starscript.compiler.Compiler;
+import meteordevelopment.starscript.compiler.Optimizer;
+import meteordevelopment.starscript.compiler.Parser;
+import meteordevelopment.starscript.utils.Error;
+
+/**
+ * Thread safe cache of parsed, optimized and compiled scripts keyed by their source. Sources that fail to parse are
+ * cached together with their errors, so they are not parsed again. When full, the least recently used entry is evicted.
+ */
+public class ScriptCache {
+   private final int capacity;
+   private final Map<String, ScriptCache.Entry> entries;
+   private long hits;
+   private long misses;
+
+   public ScriptCache(int capacity) {
+      if (capacity <= 0) {
+         throw new IllegalArgumentException("Capacity must be positive.");
+      } else {
+         this.capacity = capacity;
+         this.entries = new LinkedHashMap<String, ScriptCache.Entry>(16, 0.75F, true) {
+            protected boolean removeEldestEntry(java.util.Map.Entry<String, ScriptCache.Entry> eldest) {
+               return this.size() > ScriptCache.this.capacity;
+            }
+         };
+      }
+   }
+
+   public ScriptCache.Entry get(String source) {
+      ScriptCache.Entry entry;
+      synchronized(this.entries) {
+         entry = this.entries.get(source);
+         if (entry != null) {
+            ++this.hits;
+            return entry;
+         }
+
+         ++this.misses;
+      }
+
+      entry = compile(source);
+      synchronized(this.entries) {
+         ScriptCache.Entry existing = this.entries.putIfAbsent(source, entry);
+         return existing != null ? existing : entry;
+      }
+   }
+
+   /** Returns the compiled script for the source, or null if it has errors. */
+   public Script getScript(String source) {
+      return this.get(source).script;
+   }
+
+   private static ScriptCache.Entry compile(String source) {
+      Parser.Result result = Parser.parse(source);
+      return result.hasErrors() ? new ScriptCache.Entry(null, result.errors) : new ScriptCache.Entry(Compiler.compile(Optimizer.optimize(result)), Collections.emptyList());
+   }
+
+   public void remove(String source) {
+      synchronized(this.entries) {
+         this.entries.remove(source);
+      }
+   }
+
+   public void clear() {
+      synchronized(this.entries) {
+         this.entries.clear();
+      }
+   }
+
+   public int size() {
+      synchronized(this.entries) {
+         return this.entries.size();
+      }
+   }
+
+   public int getCapacity() {
+      return this.capacity;
+   }
+
+   public long getHits() {
+      synchronized(this.entries) {
+         return this.hits;
+      }
+   }
+
+   public long getMisses() {
+      synchronized(this.entries) {
+         return this.misses;
+      }
+   }
+
+   public static class Entry {
+      public final Script script;
+      public final List<Error> errors;
+
+      public Entry(Script script, List<Error> errors) {
+         this.script = script;
+         this.errors = errors;
+      }
+
+      public boolean hasErrors() {
+         return this.errors.size() > 0;
+      }
+   }
+}
@@ -1,20 +1,23 @@
 package meteordevelopment.starscript;
 
 import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.function.Supplier;
 import meteordevelopment.starscript.compiler.Expr;
 import meteordevelopment.starscript.compiler.Parser;
 import meteordevelopment.starscript.utils.CompletionCallback;
 import meteordevelopment.starscript.utils.Error;
 import meteordevelopment.starscript.utils.SFunction;
-import meteordevelopment.starscript.utils.Stack;
 import meteordevelopment.starscript.utils.StarscriptError;
+import meteordevelopment.starscript.utils.ValueStack;
 import meteordevelopment.starscript.value.Value;
 import meteordevelopment.starscript.value.ValueMap;
 
 public class Starscript {
    private final ValueMap globals = new ValueMap();
-   private final Stack<Value> stack = new Stack();
+   private final ValueStack stack = new ValueStack();
+   private final Map<Script, int[]> links = new WeakHashMap<>();
 
    public Section run(Script script, StringBuilder sb) {
       this.stack.clear();
@@ -23,16 +26,21 @@ public class Starscript {
       Section firstSection = null;
       Section section = null;
       byte index = 0;
+      int[] slots = this.links.get(script);
+      if (slots == null) {
+         slots = script.link(this.globals);
+         this.links.put(script, slots);
+      }
 
       while(true) {
          Value b;
          String name;
-         Supplier s;
+         Supplier<Value> s;
          byte argCount;
-         String name;
          int jump;
          Value a;
          Value r;
+         double n;
          switch(Instruction.valueOf(script.code[ip++])) {
          case Constant:
             this.push((Value)script.constants.get(script.code[ip++]));
@@ -47,61 +55,66 @@ public class Starscript {
             this.push(Value.bool(false));
             break;
          case Add:
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = this.stack.getNumber(1) + this.stack.getNumber(0);
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
+               break;
+            }
+
             b = this.pop();
             a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() + b.getNumber()));
-            } else if (a.isString()) {
+            if (a.isString()) {
                this.push(Value.string(a.getString() + b.toString()));
             } else {
                this.error("Can only add 2 numbers or 1 string and other value.");
             }
             break;
          case Subtract:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() - b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = this.stack.getNumber(1) - this.stack.getNumber(0);
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
                break;
             }
 
             this.error("Can only subtract 2 numbers.");
             break;
          case Multiply:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() * b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = this.stack.getNumber(1) * this.stack.getNumber(0);
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
                break;
             }
 
             this.error("Can only multiply 2 numbers.");
             break;
          case Divide:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() / b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = this.stack.getNumber(1) / this.stack.getNumber(0);
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
                break;
             }
 
             this.error("Can only divide 2 numbers.");
             break;
          case Modulo:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() % b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = this.stack.getNumber(1) % this.stack.getNumber(0);
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
                break;
             }
 
             this.error("Can only modulo 2 numbers.");
             break;
          case Power:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(Math.pow(a.getNumber(), b.getNumber())));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               n = Math.pow(this.stack.getNumber(1), this.stack.getNumber(0));
+               this.stack.drop(2);
+               this.stack.pushNumber(n);
                break;
             }
 
@@ -109,82 +122,90 @@ public class Starscript {
             break;
          case AddConstant:
             b = (Value)script.constants.get(script.code[ip++]);
+            if (this.stack.isNumber(0) && b.isNumber()) {
+               n = this.stack.popNumber() + b.getNumber();
+               this.stack.pushNumber(n);
+               break;
+            }
+
             a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.number(a.getNumber() + b.getNumber()));
-            } else if (a.isString()) {
+            if (a.isString()) {
                this.push(Value.string(a.getString() + b.toString()));
             } else {
                this.error("Can only add 2 numbers or 1 string and other value.");
             }
             break;
          case Pop:
-            this.pop();
+            this.stack.drop(1);
             break;
          case Not:
-            this.push(Value.bool(!this.pop().isTruthy()));
+            this.push(Value.bool(!this.stack.popTruthy()));
             break;
          case Negate:
-            b = this.pop();
-            if (b.isNumber()) {
-               this.push(Value.number(-b.getNumber()));
+            if (this.stack.isNumber(0)) {
+               this.stack.pushNumber(-this.stack.popNumber());
             } else {
                this.error("This operation requires a number.");
             }
             break;
          case Equals:
-            this.push(Value.bool(this.pop().equals(this.pop())));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() == this.stack.popNumber()));
+            } else {
+               this.push(Value.bool(this.pop().equals(this.pop())));
+            }
             break;
          case NotEquals:
-            this.push(Value.bool(!this.pop().equals(this.pop())));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() != this.stack.popNumber()));
+            } else {
+               this.push(Value.bool(!this.pop().equals(this.pop())));
+            }
             break;
          case Greater:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.bool(a.getNumber() > b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() < this.stack.popNumber()));
                break;
             }
 
             this.error("This operation requires 2 number.");
             break;
          case GreaterEqual:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.bool(a.getNumber() >= b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() <= this.stack.popNumber()));
                break;
             }
 
             this.error("This operation requires 2 number.");
             break;
          case Less:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.bool(a.getNumber() < b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() > this.stack.popNumber()));
                break;
             }
 
             this.error("This operation requires 2 number.");
             break;
          case LessEqual:
-            b = this.pop();
-            a = this.pop();
-            if (a.isNumber() && b.isNumber()) {
-               this.push(Value.bool(a.getNumber() <= b.getNumber()));
+            if (this.stack.isNumber(0) && this.stack.isNumber(1)) {
+               this.push(Value.bool(this.stack.popNumber() >= this.stack.popNumber()));
                break;
             }
 
             this.error("This operation requires 2 number.");
             break;
          case Variable:
-            name = ((Value)script.constants.get(script.code[ip++])).getString();
-            Supplier<Value> s = this.globals.get(name);
+            s = this.globals.get(slots[script.code[ip++]]);
             this.push(s != null ? (Value)s.get() : Value.null_());
             break;
          case Get:
             name = ((Value)script.constants.get(script.code[ip++])).getString();
+            if (this.stack.isUnboxed(0)) {
+               this.stack.drop(1);
+               this.push(Value.null_());
+               break;
+            }
+
             a = this.pop();
             if (!a.isMap()) {
                this.push(Value.null_());
@@ -210,13 +231,13 @@ public class Starscript {
             break;
          case JumpIfTrue:
             jump = script.code[ip++] << 8 & 255 | script.code[ip++] & 255;
-            if (this.peek().isTruthy()) {
+            if (this.stack.isTruthy(0)) {
                ip += jump;
             }
             break;
          case JumpIfFalse:
             jump = script.code[ip++] << 8 & 255 | script.code[ip++] & 255;
-            if (!this.peek().isTruthy()) {
+            if (!this.stack.isTruthy(0)) {
                ip += jump;
             }
             break;
@@ -233,17 +254,27 @@ public class Starscript {
             index = script.code[ip++];
             break;
          case Append:
-            sb.append(this.pop().toString());
+            if (this.stack.isUnboxed(0)) {
+               appendNumber(sb, this.stack.popNumber());
+            } else {
+               sb.append(this.pop().toString());
+            }
             break;
          case ConstantAppend:
             sb.append(((Value)script.constants.get(script.code[ip++])).toString());
             break;
          case VariableAppend:
-            Supplier<Value> s = this.globals.get(((Value)script.constants.get(script.code[ip++])).getString());
+            s = this.globals.get(slots[script.code[ip++]]);
             sb.append((s == null ? Value.null_() : (Value)s.get()).toString());
             break;
          case GetAppend:
             name = ((Value)script.constants.get(script.code[ip++])).getString();
+            if (this.stack.isUnboxed(0)) {
+               this.stack.drop(1);
+               sb.append(Value.null_());
+               break;
+            }
+
             a = this.pop();
             if (!a.isMap()) {
                sb.append(Value.null_());
@@ -264,8 +295,7 @@ public class Starscript {
             }
             break;
          case VariableGet:
-            name = ((Value)script.constants.get(script.code[ip++])).getString();
-            s = this.globals.get(name);
+            s = this.globals.get(slots[script.code[ip++]]);
             b = s != null ? (Value)s.get() : Value.null_();
             name = ((Value)script.constants.get(script.code[ip++])).getString();
             if (!b.isMap()) {
@@ -276,8 +306,7 @@ public class Starscript {
             }
             break;
          case VariableGetAppend:
-            name = ((Value)script.constants.get(script.code[ip++])).getString();
-            s = this.globals.get(name);
+            s = this.globals.get(slots[script.code[ip++]]);
             b = s != null ? (Value)s.get() : Value.null_();
             name = ((Value)script.constants.get(script.code[ip++])).getString();
             if (!b.isMap()) {
@@ -305,20 +334,39 @@ public class Starscript {
       return this.run(script, new StringBuilder());
    }
 
+   public Section run(CompiledScript script, StringBuilder sb) {
+      this.stack.clear();
+      sb.setLength(0);
+      return script.run(this, sb);
+   }
+
+   public Section run(CompiledScript script) {
+      return this.run(script, new StringBuilder());
+   }
+
+   private static void appendNumber(StringBuilder sb, double n) {
+      if (n % 1.0D == 0.0D) {
+         sb.append((int)n);
+      } else {
+         sb.append(n);
+      }
+
+   }
+
    public void push(Value value) {
       this.stack.push(value);
    }
 
    public Value pop() {
-      return (Value)this.stack.pop();
+      return this.stack.pop();
    }
 
    public Value peek() {
-      return (Value)this.stack.peek();
+      return this.stack.peek();
    }
 
    public Value peek(int offset) {
-      return (Value)this.stack.peek(offset);
+      return this.stack.peek(offset);
    }
 
    public boolean popBool(String errorMsg) {
@@ -331,6 +379,10 @@ public class Starscript {
    }
 
    public double popNumber(String errorMsg) {
+      if (this.stack.isNumber(0)) {
+         return this.stack.popNumber();
+      }
+
       Value a = this.pop();
       if (!a.isNumber()) {
          this.error(errorMsg);
@@ -409,12 +461,12 @@ public class Starscript {
          String key;
          if (expr instanceof Expr.Variable) {
             Expr.Variable var = (Expr.Variable)expr;
-            key = source.substring(var.start, position);
+            String start = source.substring(var.start, position);
             Iterator var7 = this.globals.keys().iterator();
 
             while(var7.hasNext()) {
-               String key = (String)var7.next();
-               if (!key.startsWith("_") && key.startsWith(key)) {
+               key = (String)var7.next();
+               if (!key.startsWith("_") && key.startsWith(start)) {
                   callback.onCompletion(key, ((Value)this.globals.get(key).get()).isFunction());
                }
             }
@@ -427,7 +479,7 @@ public class Starscript {
                   Iterator var14 = value.getMap().keys().iterator();
 
                   while(var14.hasNext()) {
-                     String key = (String)var14.next();
+                     key = (String)var14.next();
                      if (!key.startsWith("_") && key.startsWith(start)) {
                         callback.onCompletion(key, ((Value)value.getMap().get(key).get()).isFunction());
                      }
@@ -0,0 +1,459 @@
+package meteordevelopment.starscript.compiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+import meteordevelopment.starscript.CompiledScript;
+import meteordevelopment.starscript.Instruction;
+import meteordevelopment.starscript.Script;
+import meteordevelopment.starscript.Section;
+import meteordevelopment.starscript.Starscript;
+import meteordevelopment.starscript.value.Value;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class BytecodeCompiler {
+   private static final String NAME = "meteordevelopment/starscript/compiler/GeneratedScript";
+   private static final String SUPER = "meteordevelopment/starscript/CompiledScript";
+   private static final String STARSCRIPT = "meteordevelopment/starscript/Starscript";
+   private static final String VALUE = "meteordevelopment/starscript/value/Value";
+   private static final String SECTION = "meteordevelopment/starscript/Section";
+   private static final String SB = "java/lang/StringBuilder";
+   private static final String BINARY = "(L" + STARSCRIPT + ";L" + VALUE + ";L" + VALUE + ";)L" + VALUE + ";";
+   private static final int SS = 1;
+   private static final int BUILDER = 2;
+   private static final int FIRST = 3;
+   private static final int CURRENT = 4;
+   private static final int INDEX = 5;
+   private static final int ARGS = 6;
+   private static Method defineHiddenClassMethod;
+   private static Object noClassOptions;
+   private static volatile boolean enabled;
+   private static final AtomicInteger failures = new AtomicInteger();
+   private final Script script;
+   private final int size;
+   private final Label[] labels;
+   private MethodVisitor mv;
+
+   private BytecodeCompiler(Script script) {
+      this.script = script;
+      this.size = getSize(script);
+      this.labels = new Label[this.size + 1];
+   }
+
+   /**
+    * Translates the script into a hidden class. Scripts that cannot be translated, see {@link #isSupported()}, and
+    * scripts whose class fails to generate are interpreted instead, the latter are counted by {@link #getFailures()}.
+    */
+   public static CompiledScript compile(Script script) {
+      if (enabled) {
+         BytecodeCompiler compiler = new BytecodeCompiler(script);
+         if (compiler.isSupported()) {
+            try {
+               byte[] bytes = compiler.generate();
+               Lookup lookup = (Lookup)defineHiddenClassMethod.invoke(MethodHandles.lookup(), bytes, false, noClassOptions);
+               return (CompiledScript)lookup.lookupClass().getConstructor(Value[].class).newInstance((Object)script.constants.toArray(new Value[0]));
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+               failures.incrementAndGet();
+            }
+         }
+      }
+
+      return new BytecodeCompiler.Interpreted(script);
+   }
+
+   public static boolean isEnabled() {
+      return enabled;
+   }
+
+   /** Returns how many supported scripts failed to generate and are interpreted instead. */
+   public static int getFailures() {
+      return failures.get();
+   }
+
+   /**
+    * Returns false for scripts with constant indices past the signed byte range, which the interpreter reads as negative
+    * indices, and for jumps whose target is not the start of an instruction.
+    */
+   private boolean isSupported() {
+      boolean[] starts = new boolean[this.size];
+
+      int ip;
+      for(ip = 0; ip < this.size; ip += 1 + getOperandSize(Instruction.valueOf(this.script.code[ip]))) {
+         starts[ip] = true;
+      }
+
+      for(ip = 0; ip < this.size; ip += 1 + getOperandSize(Instruction.valueOf(this.script.code[ip]))) {
+         switch(Instruction.valueOf(this.script.code[ip])) {
+         case Constant:
+         case AddConstant:
+         case Variable:
+         case Get:
+         case ConstantAppend:
+         case VariableAppend:
+         case GetAppend:
+            if (!this.isConstant(this.script.code[ip + 1])) {
+               return false;
+            }
+            break;
+         case VariableGet:
+         case VariableGetAppend:
+            if (!this.isConstant(this.script.code[ip + 1]) || !this.isConstant(this.script.code[ip + 2])) {
+               return false;
+            }
+            break;
+         case Jump:
+         case JumpIfTrue:
+         case JumpIfFalse:
+            int target = this.getJumpTarget(ip);
+            if (target >= this.size || !starts[target]) {
+               return false;
+            }
+         }
+      }
+
+      return true;
+   }
+
+   private boolean isConstant(int constant) {
+      return constant >= 0 && constant < this.script.constants.size();
+   }
+
+   private static int getSize(Script script) {
+      int ip = 0;
+
+      while(true) {
+         Instruction insn = Instruction.valueOf(script.code[ip]);
+         if (insn == Instruction.End) {
+            return ip + 1;
+         }
+
+         ip += 1 + getOperandSize(insn);
+      }
+   }
+
+   private static int getOperandSize(Instruction insn) {
+      switch(insn) {
+      case Constant:
+      case AddConstant:
+      case Variable:
+      case Get:
+      case Call:
+      case Section:
+      case ConstantAppend:
+      case VariableAppend:
+      case GetAppend:
+      case CallAppend:
+         return 1;
+      case Jump:
+      case JumpIfTrue:
+      case JumpIfFalse:
+      case VariableGet:
+      case VariableGetAppend:
+         return 2;
+      default:
+         return 0;
+      }
+   }
+
+   private int getJumpTarget(int ip) {
+      int jump = this.script.code[ip + 1] << 8 & 255 | this.script.code[ip + 2] & 255;
+      return ip + 3 + jump;
+   }
+
+   private Label getLabel(int ip) {
+      if (this.labels[ip] == null) {
+         this.labels[ip] = new Label();
+      }
+
+      return this.labels[ip];
+   }
+
+   private Value getConstant(int ip) {
+      return this.script.constants.get(this.script.code[ip]);
+   }
+
+   private byte[] generate() {
+      ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+      cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, NAME, (String)null, SUPER, (String[])null);
+
+      for(int i = 0; i < this.script.constants.size(); ++i) {
+         cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "c" + i, "L" + VALUE + ";", (String)null, (Object)null).visitEnd();
+      }
+
+      MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([L" + VALUE + ";)V", (String)null, (String[])null);
+      init.visitCode();
+      init.visitVarInsn(Opcodes.ALOAD, 0);
+      init.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER, "<init>", "()V", false);
+
+      for(int i = 0; i < this.script.constants.size(); ++i) {
+         init.visitVarInsn(Opcodes.ALOAD, 0);
+         init.visitVarInsn(Opcodes.ALOAD, 1);
+         init.visitLdcInsn(i);
+         init.visitInsn(Opcodes.AALOAD);
+         init.visitFieldInsn(Opcodes.PUTFIELD, NAME, "c" + i, "L" + VALUE + ";");
+      }
+
+      init.visitInsn(Opcodes.RETURN);
+      init.visitMaxs(0, 0);
+      init.visitEnd();
+      this.mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "run", "(L" + STARSCRIPT + ";L" + SB + ";)L" + SECTION + ";", (String)null, (String[])null);
+      this.mv.visitCode();
+      this.mv.visitInsn(Opcodes.ACONST_NULL);
+      this.mv.visitVarInsn(Opcodes.ASTORE, FIRST);
+      this.mv.visitInsn(Opcodes.ACONST_NULL);
+      this.mv.visitVarInsn(Opcodes.ASTORE, CURRENT);
+      this.mv.visitInsn(Opcodes.ICONST_0);
+      this.mv.visitVarInsn(Opcodes.ISTORE, INDEX);
+
+      int ip;
+      for(ip = 0; ip < this.size; ip += 1 + getOperandSize(Instruction.valueOf(this.script.code[ip]))) {
+         Instruction insn = Instruction.valueOf(this.script.code[ip]);
+         if (insn == Instruction.Jump || insn == Instruction.JumpIfTrue || insn == Instruction.JumpIfFalse) {
+            this.getLabel(this.getJumpTarget(ip));
+         }
+      }
+
+      for(ip = 0; ip < this.size; ip += 1 + getOperandSize(Instruction.valueOf(this.script.code[ip]))) {
+         if (this.labels[ip] != null) {
+            this.mv.visitLabel(this.labels[ip]);
+         }
+
+         this.instruction(ip, Instruction.valueOf(this.script.code[ip]));
+      }
+
+      this.mv.visitMaxs(0, 0);
+      this.mv.visitEnd();
+      cw.visitEnd();
+      return cw.toByteArray();
+   }
+
+   private void instruction(int ip, Instruction insn) {
+      switch(insn) {
+      case Constant:
+         this.constant(ip + 1);
+         break;
+      case Null:
+         this.invoke(VALUE, "null_", "()L" + VALUE + ";");
+         break;
+      case True:
+      case False:
+         this.mv.visitInsn(insn == Instruction.True ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+         this.invoke(VALUE, "bool", "(Z)L" + VALUE + ";");
+         break;
+      case Add:
+         this.binary("add");
+         break;
+      case Subtract:
+         this.binary("subtract");
+         break;
+      case Multiply:
+         this.binary("multiply");
+         break;
+      case Divide:
+         this.binary("divide");
+         break;
+      case Modulo:
+         this.binary("modulo");
+         break;
+      case Power:
+         this.binary("power");
+         break;
+      case AddConstant:
+         this.constant(ip + 1);
+         this.binary("add");
+         break;
+      case Pop:
+         this.mv.visitInsn(Opcodes.POP);
+         break;
+      case Not:
+         this.invoke(SUPER, "not", "(L" + VALUE + ";)L" + VALUE + ";");
+         break;
+      case Negate:
+         this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+         this.mv.visitInsn(Opcodes.SWAP);
+         this.invoke(SUPER, "negate", "(L" + STARSCRIPT + ";L" + VALUE + ";)L" + VALUE + ";");
+         break;
+      case Equals:
+         this.invoke(SUPER, "equals", "(L" + VALUE + ";L" + VALUE + ";)L" + VALUE + ";");
+         break;
+      case NotEquals:
+         this.invoke(SUPER, "notEquals", "(L" + VALUE + ";L" + VALUE + ";)L" + VALUE + ";");
+         break;
+      case Greater:
+         this.binary("greater");
+         break;
+      case GreaterEqual:
+         this.binary("greaterEqual");
+         break;
+      case Less:
+         this.binary("less");
+         break;
+      case LessEqual:
+         this.binary("lessEqual");
+         break;
+      case Variable:
+         this.variable(this.getConstant(ip + 1).getString());
+         break;
+      case Get:
+         this.get(this.getConstant(ip + 1).getString());
+         break;
+      case Call:
+         this.call(this.script.code[ip + 1]);
+         break;
+      case Jump:
+         this.mv.visitJumpInsn(Opcodes.GOTO, this.getLabel(this.getJumpTarget(ip)));
+         break;
+      case JumpIfTrue:
+      case JumpIfFalse:
+         this.mv.visitInsn(Opcodes.DUP);
+         this.mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, VALUE, "isTruthy", "()Z", false);
+         this.mv.visitJumpInsn(insn == Instruction.JumpIfTrue ? Opcodes.IFNE : Opcodes.IFEQ, this.getLabel(this.getJumpTarget(ip)));
+         break;
+      case Section:
+         this.mv.visitVarInsn(Opcodes.ALOAD, CURRENT);
+         this.mv.visitVarInsn(Opcodes.ILOAD, INDEX);
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.invoke(SUPER, "section", "(L" + SECTION + ";IL" + SB + ";)L" + SECTION + ";");
+         this.mv.visitVarInsn(Opcodes.ASTORE, CURRENT);
+         Label hasFirst = new Label();
+         this.mv.visitVarInsn(Opcodes.ALOAD, FIRST);
+         this.mv.visitJumpInsn(Opcodes.IFNONNULL, hasFirst);
+         this.mv.visitVarInsn(Opcodes.ALOAD, CURRENT);
+         this.mv.visitVarInsn(Opcodes.ASTORE, FIRST);
+         this.mv.visitLabel(hasFirst);
+         this.mv.visitLdcInsn(Integer.valueOf(this.script.code[ip + 1]));
+         this.mv.visitVarInsn(Opcodes.ISTORE, INDEX);
+         break;
+      case Append:
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitInsn(Opcodes.SWAP);
+         this.invoke(SUPER, "append", "(L" + SB + ";L" + VALUE + ";)V");
+         break;
+      case ConstantAppend:
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitLdcInsn(this.getConstant(ip + 1).toString());
+         this.mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, SB, "append", "(Ljava/lang/String;)L" + SB + ";", false);
+         this.mv.visitInsn(Opcodes.POP);
+         break;
+      case VariableAppend:
+         this.variable(this.getConstant(ip + 1).getString());
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitInsn(Opcodes.SWAP);
+         this.invoke(SUPER, "append", "(L" + SB + ";L" + VALUE + ";)V");
+         break;
+      case GetAppend:
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitInsn(Opcodes.SWAP);
+         this.mv.visitLdcInsn(this.getConstant(ip + 1).getString());
+         this.invoke(SUPER, "getAppend", "(L" + SB + ";L" + VALUE + ";Ljava/lang/String;)V");
+         break;
+      case CallAppend:
+         this.call(this.script.code[ip + 1]);
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitInsn(Opcodes.SWAP);
+         this.invoke(SUPER, "append", "(L" + SB + ";L" + VALUE + ";)V");
+         break;
+      case VariableGet:
+         this.variable(this.getConstant(ip + 1).getString());
+         this.get(this.getConstant(ip + 2).getString());
+         break;
+      case VariableGetAppend:
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+         this.mv.visitLdcInsn(this.getConstant(ip + 1).getString());
+         this.mv.visitLdcInsn(this.getConstant(ip + 2).getString());
+         this.invoke(SUPER, "variableGetAppend", "(L" + SB + ";L" + STARSCRIPT + ";Ljava/lang/String;Ljava/lang/String;)V");
+         break;
+      case End:
+         this.mv.visitVarInsn(Opcodes.ALOAD, FIRST);
+         this.mv.visitVarInsn(Opcodes.ALOAD, CURRENT);
+         this.mv.visitVarInsn(Opcodes.ILOAD, INDEX);
+         this.mv.visitVarInsn(Opcodes.ALOAD, BUILDER);
+         this.invoke(SUPER, "end", "(L" + SECTION + ";L" + SECTION + ";IL" + SB + ";)L" + SECTION + ";");
+         this.mv.visitInsn(Opcodes.ARETURN);
+         break;
+      default:
+         throw new UnsupportedOperationException("Unknown instruction '" + insn + "'");
+      }
+
+   }
+
+   private void constant(int ip) {
+      int constant = this.script.code[ip];
+      if (constant < 0 || constant >= this.script.constants.size()) {
+         throw new IndexOutOfBoundsException("Constant " + constant + " out of range.");
+      }
+
+      this.mv.visitVarInsn(Opcodes.ALOAD, 0);
+      this.mv.visitFieldInsn(Opcodes.GETFIELD, NAME, "c" + constant, "L" + VALUE + ";");
+   }
+
+   private void binary(String name) {
+      this.mv.visitVarInsn(Opcodes.ASTORE, ARGS);
+      this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+      this.mv.visitInsn(Opcodes.SWAP);
+      this.mv.visitVarInsn(Opcodes.ALOAD, ARGS);
+      this.invoke(SUPER, name, BINARY);
+   }
+
+   private void variable(String name) {
+      this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+      this.mv.visitLdcInsn(name);
+      this.invoke(SUPER, "variable", "(L" + STARSCRIPT + ";Ljava/lang/String;)L" + VALUE + ";");
+   }
+
+   private void get(String name) {
+      this.mv.visitLdcInsn(name);
+      this.invoke(SUPER, "get", "(L" + VALUE + ";Ljava/lang/String;)L" + VALUE + ";");
+   }
+
+   private void call(int argCount) {
+      int i;
+      for(i = argCount; i >= 0; --i) {
+         this.mv.visitVarInsn(Opcodes.ASTORE, ARGS + i);
+      }
+
+      for(i = 0; i <= argCount; ++i) {
+         this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+         this.mv.visitVarInsn(Opcodes.ALOAD, ARGS + i);
+         this.mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, STARSCRIPT, "push", "(L" + VALUE + ";)V", false);
+      }
+
+      this.mv.visitVarInsn(Opcodes.ALOAD, SS);
+      this.mv.visitLdcInsn(argCount);
+      this.invoke(SUPER, "call", "(L" + STARSCRIPT + ";I)L" + VALUE + ";");
+   }
+
+   private void invoke(String owner, String name, String descriptor) {
+      this.mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, descriptor, false);
+   }
+
+   static {
+      try {
+         Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+         noClassOptions = Array.newInstance(classOption, 0);
+         defineHiddenClassMethod = Lookup.class.getMethod("defineHiddenClass", byte[].class, Boolean.TYPE, noClassOptions.getClass());
+         enabled = true;
+      } catch (ClassNotFoundException | NoSuchMethodException var1) {
+         enabled = false;
+      }
+
+   }
+
+   private static class Interpreted extends CompiledScript {
+      private final Script script;
+
+      public Interpreted(Script script) {
+         this.script = script;
+      }
+
+      public Section run(Starscript ss, StringBuilder sb) {
+         return ss.run(this.script, sb);
+      }
+   }
+}
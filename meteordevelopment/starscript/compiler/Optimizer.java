@@ -0,0 +1,258 @@
+package meteordevelopment.starscript.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import meteordevelopment.starscript.value.Value;
+
+/**
+ * Simplifies parsed expressions before they are passed to {@link Compiler#compile(Parser.Result)}. Folds arithmetic,
+ * comparisons and string concatenation of constants, removes branches of conditionals and logical operators whose
+ * condition is constant and merges adjacent constant text into a single append. Operations that would fail at runtime
+ * are left as they are so the script still reports the same error.
+ */
+public class Optimizer implements Expr.Visitor {
+   private Expr result;
+
+   private Optimizer() {
+   }
+
+   public static Parser.Result optimize(Parser.Result result) {
+      Optimizer optimizer = new Optimizer();
+      Parser.Result optimized = new Parser.Result();
+      optimized.errors.addAll(result.errors);
+      for (Expr parsed : result.exprs) {
+         Expr expr = toText(optimizer.optimize(parsed));
+         int last = optimized.exprs.size() - 1;
+         if (expr instanceof Expr.String && last >= 0) {
+            Expr previous = optimized.exprs.get(last);
+            if (previous instanceof Expr.String) {
+               optimized.exprs.set(last, concat(previous, (Expr.String)previous, (Expr.String)expr));
+               continue;
+            }
+
+            if (previous instanceof Expr.Section && ((Expr.Section)previous).expr instanceof Expr.String) {
+               Expr.Section section = (Expr.Section)previous;
+               optimized.exprs.set(last, new Expr.Section(section.start, expr.end, section.index, concat(section.expr, (Expr.String)section.expr, (Expr.String)expr)));
+               continue;
+            }
+         }
+
+         optimized.exprs.add(expr);
+      }
+
+      return optimized;
+   }
+
+   private static Expr toText(Expr expr) {
+      if (expr instanceof Expr.Block && isConstant(((Expr.Block)expr).expr)) {
+         return new Expr.String(expr.start, expr.end, toValue(((Expr.Block)expr).expr).toString());
+      } else if (expr instanceof Expr.Section) {
+         Expr.Section section = (Expr.Section)expr;
+         Expr text = toText(section.expr);
+         return text == section.expr ? expr : new Expr.Section(section.start, section.end, section.index, text);
+      } else {
+         return expr;
+      }
+   }
+
+   private static Expr.String concat(Expr first, Expr.String a, Expr.String b) {
+      return new Expr.String(first.start, b.end, a.string + b.string);
+   }
+
+   private static boolean isConstant(Expr expr) {
+      return expr instanceof Expr.Null || expr instanceof Expr.String || expr instanceof Expr.Number || expr instanceof Expr.Bool;
+   }
+
+   private static Value toValue(Expr expr) {
+      if (expr instanceof Expr.String) {
+         return Value.string(((Expr.String)expr).string);
+      } else if (expr instanceof Expr.Number) {
+         return Value.number(((Expr.Number)expr).number);
+      } else if (expr instanceof Expr.Bool) {
+         return Value.bool(((Expr.Bool)expr).bool);
+      } else {
+         return Value.null_();
+      }
+   }
+
+   private static Expr toExpr(Expr expr, Value value) {
+      switch(value.type) {
+      case Boolean:
+         return new Expr.Bool(expr.start, expr.end, value.getBool());
+      case Number:
+         return new Expr.Number(expr.start, expr.end, value.getNumber());
+      case String:
+         return new Expr.String(expr.start, expr.end, value.getString());
+      default:
+         return new Expr.Null(expr.start, expr.end);
+      }
+   }
+
+   private static Value fold(Token op, Value a, Value b) {
+      if (op == Token.EqualEqual) {
+         return Value.bool(b.equals(a));
+      } else if (op == Token.BangEqual) {
+         return Value.bool(!b.equals(a));
+      } else if (op == Token.Plus && a.isString()) {
+         return Value.string(a.getString() + b.toString());
+      } else if (a.isNumber() && b.isNumber()) {
+         double x = a.getNumber();
+         double y = b.getNumber();
+         switch(op) {
+         case Plus:
+            return Value.number(x + y);
+         case Minus:
+            return Value.number(x - y);
+         case Star:
+            return Value.number(x * y);
+         case Slash:
+            return Value.number(x / y);
+         case Percentage:
+            return Value.number(x % y);
+         case UpArrow:
+            return Value.number(Math.pow(x, y));
+         case Greater:
+            return Value.bool(x > y);
+         case GreaterEqual:
+            return Value.bool(x >= y);
+         case Less:
+            return Value.bool(x < y);
+         case LessEqual:
+            return Value.bool(x <= y);
+         default:
+            return null;
+         }
+      } else {
+         return null;
+      }
+   }
+
+   private Expr optimize(Expr expr) {
+      if (expr == null) {
+         return null;
+      } else {
+         expr.accept(this);
+         return this.result;
+      }
+   }
+
+   public void visitNull(Expr.Null expr) {
+      this.result = expr;
+   }
+
+   public void visitString(Expr.String expr) {
+      this.result = expr;
+   }
+
+   public void visitNumber(Expr.Number expr) {
+      this.result = expr;
+   }
+
+   public void visitBool(Expr.Bool expr) {
+      this.result = expr;
+   }
+
+   public void visitBlock(Expr.Block expr) {
+      Expr inner = this.optimize(expr.expr);
+      if (inner != expr.expr && inner instanceof Expr.Get && ((Expr.Get)inner).object instanceof Expr.Variable) {
+         inner = new Expr.Group(inner.start, inner.end, inner);
+      }
+
+      this.result = inner == expr.expr ? expr : new Expr.Block(expr.start, expr.end, inner);
+   }
+
+   public void visitGroup(Expr.Group expr) {
+      Expr inner = this.optimize(expr.expr);
+      if (isConstant(inner)) {
+         this.result = inner;
+      } else {
+         this.result = inner == expr.expr ? expr : new Expr.Group(expr.start, expr.end, inner);
+      }
+
+   }
+
+   public void visitBinary(Expr.Binary expr) {
+      Expr left = this.optimize(expr.left);
+      Expr right = this.optimize(expr.right);
+      Value value = null;
+      if (isConstant(left) && isConstant(right)) {
+         value = fold(expr.op, toValue(left), toValue(right));
+      } else if (expr.op == Token.Plus && left instanceof Expr.Binary && isConstant(right)) {
+         Expr.Binary binary = (Expr.Binary)left;
+         if (binary.op == Token.Plus && binary.right instanceof Expr.String) {
+            this.result = new Expr.Binary(expr.start, expr.end, binary.left, Token.Plus, toExpr(right, fold(Token.Plus, toValue(binary.right), toValue(right))));
+            return;
+         }
+      }
+
+      if (value != null) {
+         this.result = toExpr(expr, value);
+      } else {
+         this.result = left == expr.left && right == expr.right ? expr : new Expr.Binary(expr.start, expr.end, left, expr.op, right);
+      }
+
+   }
+
+   public void visitUnary(Expr.Unary expr) {
+      Expr right = this.optimize(expr.right);
+      if (expr.op == Token.Bang && isConstant(right)) {
+         this.result = new Expr.Bool(expr.start, expr.end, !toValue(right).isTruthy());
+      } else if (expr.op == Token.Minus && right instanceof Expr.Number) {
+         this.result = new Expr.Number(expr.start, expr.end, -((Expr.Number)right).number);
+      } else {
+         this.result = right == expr.right ? expr : new Expr.Unary(expr.start, expr.end, expr.op, right);
+      }
+
+   }
+
+   public void visitVariable(Expr.Variable expr) {
+      this.result = expr;
+   }
+
+   public void visitGet(Expr.Get expr) {
+      Expr object = this.optimize(expr.object);
+      this.result = object == expr.object ? expr : new Expr.Get(expr.start, expr.end, object, expr.name);
+   }
+
+   public void visitCall(Expr.Call expr) {
+      Expr callee = this.optimize(expr.callee);
+      boolean changed = callee != expr.callee;
+      List<Expr> args = new ArrayList<>(expr.args.size());
+      for (Expr arg : expr.args) {
+         Expr optimized = this.optimize(arg);
+         changed |= optimized != arg;
+         args.add(optimized);
+      }
+
+      this.result = changed ? new Expr.Call(expr.start, expr.end, callee, args) : expr;
+   }
+
+   public void visitLogical(Expr.Logical expr) {
+      Expr left = this.optimize(expr.left);
+      Expr right = this.optimize(expr.right);
+      if (isConstant(left)) {
+         boolean truthy = toValue(left).isTruthy();
+         this.result = truthy == (expr.op == Token.And) ? right : left;
+      } else {
+         this.result = left == expr.left && right == expr.right ? expr : new Expr.Logical(expr.start, expr.end, left, expr.op, right);
+      }
+
+   }
+
+   public void visitConditional(Expr.Conditional expr) {
+      Expr condition = this.optimize(expr.condition);
+      Expr trueExpr = this.optimize(expr.trueExpr);
+      Expr falseExpr = this.optimize(expr.falseExpr);
+      if (isConstant(condition)) {
+         this.result = toValue(condition).isTruthy() ? trueExpr : falseExpr;
+      } else {
+         this.result = condition == expr.condition && trueExpr == expr.trueExpr && falseExpr == expr.falseExpr ? expr : new Expr.Conditional(expr.start, expr.end, condition, trueExpr, falseExpr);
+      }
+
+   }
+
+   public void visitSection(Expr.Section expr) {
+      Expr inner = this.optimize(expr.expr);
+      this.result = inner == expr.expr ? expr : new Expr.Section(expr.start, expr.end, expr.index, inner);
+   }
+}
@@ -0,0 +1,101 @@
+package meteordevelopment.starscript.utils;
+
+import meteordevelopment.starscript.value.Value;
+
+/**
+ * Operand stack that can hold numbers without boxing them into {@link Value}s. A slot holds either a value or, when
+ * its value is null, an unboxed number in the parallel number array. Unboxed numbers are only boxed when they are
+ * popped or peeked as a value.
+ */
+public class ValueStack {
+   private Value[] values = new Value[8];
+   private double[] numbers = new double[8];
+   private int size;
+
+   public void clear() {
+      for(int i = 0; i < this.size; ++i) {
+         this.values[i] = null;
+      }
+
+      this.size = 0;
+   }
+
+   private void grow() {
+      if (this.size >= this.values.length) {
+         Value[] newValues = new Value[this.values.length * 2];
+         System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+         this.values = newValues;
+         double[] newNumbers = new double[this.numbers.length * 2];
+         System.arraycopy(this.numbers, 0, newNumbers, 0, this.numbers.length);
+         this.numbers = newNumbers;
+      }
+
+   }
+
+   public void push(Value value) {
+      this.grow();
+      this.values[this.size++] = value;
+   }
+
+   public void pushNumber(double number) {
+      this.grow();
+      this.values[this.size] = null;
+      this.numbers[this.size++] = number;
+   }
+
+   public Value pop() {
+      Value value = this.get(--this.size);
+      this.values[this.size] = null;
+      return value;
+   }
+
+   public double popNumber() {
+      double number = this.getNumber(0);
+      this.drop(1);
+      return number;
+   }
+
+   public void drop(int count) {
+      for(int i = 0; i < count; ++i) {
+         this.values[--this.size] = null;
+      }
+
+   }
+
+   public Value peek() {
+      return this.get(this.size - 1);
+   }
+
+   public Value peek(int offset) {
+      return this.get(this.size - 1 - offset);
+   }
+
+   public boolean isNumber(int offset) {
+      Value value = this.values[this.size - 1 - offset];
+      return value == null || value.isNumber();
+   }
+
+   public boolean isUnboxed(int offset) {
+      return this.values[this.size - 1 - offset] == null;
+   }
+
+   public boolean isTruthy(int offset) {
+      Value value = this.values[this.size - 1 - offset];
+      return value == null || value.isTruthy();
+   }
+
+   public boolean popTruthy() {
+      boolean truthy = this.isTruthy(0);
+      this.drop(1);
+      return truthy;
+   }
+
+   public double getNumber(int offset) {
+      int i = this.size - 1 - offset;
+      return this.values[i] == null ? this.numbers[i] : this.values[i].getNumber();
+   }
+
+   private Value get(int i) {
+      return this.values[i] != null ? this.values[i] : Value.number(this.numbers[i]);
+   }
+}
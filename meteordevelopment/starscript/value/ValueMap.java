@@ -8,9 +8,18 @@ import meteordevelopment.starscript.utils.SFunction;
 
 public class ValueMap {
    private final Map<String, Supplier<Value>> values = new HashMap();
+   private Map<String, Integer> slots;
+   private Supplier<Value>[] slotValues;
 
    public ValueMap set(String name, Supplier<Value> supplier) {
       this.values.put(name, supplier);
+      if (this.slots != null) {
+         Integer slot = this.slots.get(name);
+         if (slot != null) {
+            this.slotValues[slot] = supplier;
+         }
+      }
+
       return this;
    }
 
@@ -45,6 +54,40 @@ public class ValueMap {
       return (Supplier)this.values.get(name);
    }
 
+   /**
+    * Returns the index of a slot holding the value of the name, which can be read with {@link #get(int)} without
+    * hashing the name. The slot is updated when the name is redefined, names that are not defined yet get a slot too.
+    * Like the rest of the map this is not thread safe, the globals of a {@link meteordevelopment.starscript.Starscript}
+    * must only be used from the thread running it.
+    */
+   @SuppressWarnings("unchecked")
+   public int getSlot(String name) {
+      if (this.slots == null) {
+         this.slots = new HashMap<>();
+         this.slotValues = (Supplier<Value>[])new Supplier<?>[8];
+      }
+
+      Integer slot = this.slots.get(name);
+      if (slot != null) {
+         return slot;
+      } else {
+         int newSlot = this.slots.size();
+         if (newSlot >= this.slotValues.length) {
+            Supplier<Value>[] newSlotValues = (Supplier<Value>[])new Supplier<?>[this.slotValues.length * 2];
+            System.arraycopy(this.slotValues, 0, newSlotValues, 0, this.slotValues.length);
+            this.slotValues = newSlotValues;
+         }
+
+         this.slots.put(name, newSlot);
+         this.slotValues[newSlot] = this.values.get(name);
+         return newSlot;
+      }
+   }
+
+   public Supplier<Value> get(int slot) {
+      return this.slotValues[slot];
+   }
+
    public Set<String> keys() {
       return this.values.keySet();
    }
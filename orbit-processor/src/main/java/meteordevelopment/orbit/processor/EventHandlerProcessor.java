@@ -0,0 +1,196 @@
+package meteordevelopment.orbit.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import meteordevelopment.orbit.EventHandler;
+
+/**
+ * Generates an {@link meteordevelopment.orbit.listeners.IListenerRegistry} next to every class that declares
+ * {@link EventHandler} methods, so the event bus can create its listeners without reflection. Registries can only call
+ * handlers that are visible from the class's package, classes with private handlers or that are not accessible
+ * themselves are skipped with a note and keep being subscribed through reflection.
+ * <p>
+ * The processor is only needed at build time. It lives in its own source set and must be put on the annotation
+ * processor path of projects using orbit, not shipped with the runtime.
+ */
+@SupportedAnnotationTypes({"meteordevelopment.orbit.EventHandler"})
+public class EventHandlerProcessor extends AbstractProcessor {
+   public static final String SUFFIX = "$OrbitListeners";
+   private final Set<String> generated = new HashSet<>();
+
+   public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+   }
+
+   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      Map<TypeElement, List<ExecutableElement>> handlers = new LinkedHashMap<>();
+      for (Element element : roundEnv.getElementsAnnotatedWith(EventHandler.class)) {
+         if (element.getKind() == ElementKind.METHOD && this.isValid((ExecutableElement)element)) {
+            TypeElement klass = (TypeElement)element.getEnclosingElement();
+            handlers.computeIfAbsent(klass, k -> new ArrayList<>()).add((ExecutableElement)element);
+         }
+      }
+
+      for (Entry<TypeElement, List<ExecutableElement>> entry : handlers.entrySet()) {
+         TypeElement klass = entry.getKey();
+         String reason = this.getUnsupportedReason(klass, entry.getValue());
+         if (reason != null) {
+            this.processingEnv.getMessager().printMessage(Kind.NOTE, "No listener registry generated for " + klass.getQualifiedName() + " because " + reason + ", it will be subscribed using reflection", klass);
+         } else if (this.generated.add(this.getBinaryName(klass))) {
+            this.generate(klass, entry.getValue());
+         }
+      }
+
+      return false;
+   }
+
+   private boolean isValid(ExecutableElement method) {
+      if (method.getReturnType().getKind() != TypeKind.VOID) {
+         return false;
+      } else if (method.getParameters().size() != 1) {
+         return false;
+      } else {
+         return !method.getParameters().get(0).asType().getKind().isPrimitive();
+      }
+   }
+
+   private String getUnsupportedReason(TypeElement klass, List<ExecutableElement> methods) {
+      for (ExecutableElement method : methods) {
+         if (method.getModifiers().contains(Modifier.PRIVATE)) {
+            return "handler " + method.getSimpleName() + " is private";
+         }
+
+         if (!this.isAccessible(this.getParameterType(method))) {
+            return "the event type of handler " + method.getSimpleName() + " is not accessible";
+         }
+
+         TypeMirror key = this.getKeyType(method);
+         if (key != null && !this.isAccessible(key)) {
+            return "the key of handler " + method.getSimpleName() + " is not accessible";
+         }
+      }
+
+      for(Element element = klass; element instanceof TypeElement; element = element.getEnclosingElement()) {
+         TypeElement type = (TypeElement)element;
+         if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            return "it is a local or anonymous class";
+         }
+
+         if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            return "it is not accessible from its package";
+         }
+      }
+
+      return null;
+   }
+
+   private boolean isAccessible(TypeMirror type) {
+      if (type.getKind() == TypeKind.ARRAY) {
+         return this.isAccessible(((ArrayType)type).getComponentType());
+      } else if (type.getKind() != TypeKind.DECLARED) {
+         return true;
+      } else {
+         for(Element element = ((DeclaredType)type).asElement(); element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+               return false;
+            }
+         }
+
+         return true;
+      }
+   }
+
+   private TypeMirror getParameterType(ExecutableElement method) {
+      return this.processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+   }
+
+   private String getBinaryName(TypeElement klass) {
+      return this.processingEnv.getElementUtils().getBinaryName(klass).toString();
+   }
+
+   private void generate(TypeElement klass, List<ExecutableElement> methods) {
+      PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(klass);
+      String binaryName = this.getBinaryName(klass);
+      String registryName = binaryName.substring(binaryName.lastIndexOf(46) + 1) + SUFFIX;
+      String className = this.processingEnv.getTypeUtils().erasure(klass.asType()).toString();
+
+      try (PrintWriter out = new PrintWriter(this.processingEnv.getFiler().createSourceFile(binaryName + SUFFIX, klass).openWriter())) {
+         if (!pkg.isUnnamed()) {
+            out.println("package " + pkg.getQualifiedName() + ";");
+            out.println();
+         }
+
+         out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+         out.println("public final class " + registryName + " implements meteordevelopment.orbit.listeners.IListenerRegistry {");
+         out.println("   public void getListeners(Object object, java.util.List<meteordevelopment.orbit.listeners.IListener> listeners) {");
+         for (ExecutableElement method : methods) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            TypeMirror type = this.getParameterType(method);
+            TypeMirror key = this.getKeyType(method);
+            boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
+            String name = binaryName + "." + method.getSimpleName() + "(" + this.getSimpleName(type) + ")";
+            String receiver = isStatic ? className : "((" + className + ") object)";
+            String listener = "new meteordevelopment.orbit.listeners.ConsumerListener(" + type + ".class, " + annotation.band() + ", " + annotation.priority() + ", " + annotation.async() + ", " + annotation.cancels() + ", " + isStatic + ", \"" + name + "\", " + (key != null ? key + ".class" : "null") + ", null, event -> " + receiver + "." + method.getSimpleName() + "((" + type + ") event))";
+            if (method != methods.get(0)) {
+               out.println();
+            }
+
+            if (isStatic) {
+               out.println("      listeners.add(" + listener + ");");
+            } else {
+               out.println("      if (object != null) {");
+               out.println("         listeners.add(" + listener + ");");
+               out.println("      }");
+            }
+         }
+
+         out.println("   }");
+         out.println("}");
+      } catch (IOException e) {
+         this.processingEnv.getMessager().printMessage(Kind.ERROR, "Failed to write listener registry for " + klass.getQualifiedName() + ": " + e.getMessage(), klass);
+      }
+   }
+
+   private TypeMirror getKeyType(ExecutableElement method) {
+      try {
+         method.getAnnotation(EventHandler.class).key();
+         return null;
+      } catch (MirroredTypeException e) {
+         TypeMirror key = this.processingEnv.getTypeUtils().erasure(e.getTypeMirror());
+         return key.toString().equals("java.lang.Void") ? null : key;
+      }
+   }
+
+   private String getSimpleName(TypeMirror type) {
+      if (type.getKind() == TypeKind.DECLARED) {
+         return ((DeclaredType)type).asElement().getSimpleName().toString();
+      } else {
+         String name = type.toString();
+         return name.substring(name.lastIndexOf(46) + 1);
+      }
+   }
+}